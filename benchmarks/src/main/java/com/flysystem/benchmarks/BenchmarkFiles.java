@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Temporary directories for the benchmarks that need a real filesystem.
+ *
+ * @author Zeger Hoogeboom
+ */
+final class BenchmarkFiles
+{
+	private BenchmarkFiles()
+	{
+	}
+
+	static File createRoot() throws IOException
+	{
+		return Files.createTempDirectory("flysystem-benchmark").toFile();
+	}
+
+	static void delete(File root) throws IOException
+	{
+		if (root != null) FileUtils.deleteDirectory(root);
+	}
+
+	/**
+	 * A string of the given size in bytes, using ASCII only.
+	 */
+	static String contents(int size)
+	{
+		StringBuilder contents = new StringBuilder(size);
+		for (int i = 0; i < size; i++) {
+			contents.append((char) ('a' + i % 26));
+		}
+		return contents.toString();
+	}
+}
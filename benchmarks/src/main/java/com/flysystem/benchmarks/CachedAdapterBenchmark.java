@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.benchmarks;
+
+import com.flysystem.core.Config;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.adapter.local.Local;
+import com.flysystem.core.cache.CachedAdapter;
+import com.flysystem.core.cache.storage.AbstractCache;
+import com.flysystem.core.cache.storage.Memory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares cache hits with misses that fall through to the Local adapter. Misses cycle through more files
+ * than the cache may hold, so every lookup is evicted before it comes around again.
+ *
+ * @author Zeger Hoogeboom
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedAdapterBenchmark
+{
+	private static final int FILES = 1024;
+
+	private File root;
+	private String[] paths;
+	private CachedAdapter hits;
+	private CachedAdapter misses;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		root = BenchmarkFiles.createRoot();
+		Local local = new Local(root.getPath());
+		String contents = BenchmarkFiles.contents(1024);
+		paths = new String[FILES];
+		for (int i = 0; i < FILES; i++) {
+			paths[i] = "dir/file" + i + ".txt";
+			local.write(paths[i], contents);
+		}
+		hits = new CachedAdapter(local, new Memory(false));
+		for (String path : paths) {
+			hits.getMetadata(path);
+			hits.read(path);
+		}
+		misses = new CachedAdapter(local, new Memory(false, new Config().set(AbstractCache.MAX_ENTRIES, 16)));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchmarkFiles.delete(root);
+	}
+
+	private String nextPath()
+	{
+		next = (next + 1) & (FILES - 1);
+		return paths[next];
+	}
+
+	@Benchmark
+	public FileMetadata getMetadataHit()
+	{
+		return hits.getMetadata(nextPath());
+	}
+
+	@Benchmark
+	public FileMetadata getMetadataMiss()
+	{
+		return misses.getMetadata(nextPath());
+	}
+
+	@Benchmark
+	public boolean hasHit()
+	{
+		return hits.has(nextPath());
+	}
+
+	@Benchmark
+	public String readHit()
+	{
+		return hits.read(nextPath());
+	}
+
+	@Benchmark
+	public String readMiss()
+	{
+		return misses.read(nextPath());
+	}
+}
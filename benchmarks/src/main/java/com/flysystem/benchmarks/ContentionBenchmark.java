@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.benchmarks;
+
+import com.flysystem.core.Config;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.adapter.local.Local;
+import com.flysystem.core.cache.CachedAdapter;
+import com.flysystem.core.cache.storage.AbstractCache;
+import com.flysystem.core.cache.storage.Memory;
+import com.flysystem.core.metrics.AdapterMetrics;
+import com.flysystem.core.metrics.InstrumentedAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapters shared by several threads: cache hits, misses that coalesce on a small cache, readers racing writers
+ * and the instrumentation on the hot path. Compare with -t 1 to see what the contention costs.
+ *
+ * @author Zeger Hoogeboom
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark
+{
+	private static final int FILES = 1024;
+
+	private File root;
+	private String[] paths;
+	private String contents;
+	private CachedAdapter cached;
+	private CachedAdapter small;
+	private InstrumentedAdapter instrumented;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		root = BenchmarkFiles.createRoot();
+		Local local = new Local(root.getPath());
+		contents = BenchmarkFiles.contents(1024);
+		paths = new String[FILES];
+		for (int i = 0; i < FILES; i++) {
+			paths[i] = "dir/file" + i + ".txt";
+			local.write(paths[i], contents);
+		}
+		cached = new CachedAdapter(local, new Memory(false));
+		for (String path : paths) {
+			cached.getMetadata(path);
+			cached.read(path);
+		}
+		small = new CachedAdapter(local, new Memory(false, new Config().set(AbstractCache.MAX_ENTRIES, 16)));
+		instrumented = new InstrumentedAdapter(local, new AdapterMetrics());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchmarkFiles.delete(root);
+	}
+
+	private String randomPath()
+	{
+		return paths[ThreadLocalRandom.current().nextInt(FILES)];
+	}
+
+	@Benchmark
+	@Threads(8)
+	public FileMetadata getMetadataHit()
+	{
+		return cached.getMetadata(randomPath());
+	}
+
+	/**
+	 * Misses for the same path at the same time share one call to the adapter.
+	 */
+	@Benchmark
+	@Threads(8)
+	public FileMetadata getMetadataMiss()
+	{
+		return small.getMetadata(randomPath());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public FileMetadata getMetadataInstrumented()
+	{
+		return instrumented.getMetadata(randomPath());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(6)
+	public String read()
+	{
+		return cached.read(randomPath());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(2)
+	public boolean update()
+	{
+		return cached.update(randomPath(), contents);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.benchmarks;
+
+import com.flysystem.core.ContentIterator;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.adapter.local.Local;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists generated trees of empty files, 1,000 files per directory. Generating the 1,000,000 entry tree takes a while
+ * and its full listing needs a few gigabytes of heap: pass -jvmArgs -Xmx4g, or -p entries=1000,100000 to skip it.
+ *
+ * @author Zeger Hoogeboom
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListContentsBenchmark
+{
+	private static final int FILES_PER_DIRECTORY = 1000;
+
+	@Param({"1000", "100000", "1000000"})
+	public int entries;
+
+	private File root;
+	private Local local;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		root = BenchmarkFiles.createRoot();
+		for (int i = 0; i < entries; i++) {
+			File directory = new File(root, "tree/dir" + i / FILES_PER_DIRECTORY);
+			if (i % FILES_PER_DIRECTORY == 0 && ! directory.mkdirs()) throw new IOException("Could not create " + directory);
+			if (! new File(directory, "file" + i + ".txt").createNewFile()) throw new IOException("Could not create file " + i);
+		}
+		local = new Local(root.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchmarkFiles.delete(root);
+	}
+
+	@Benchmark
+	public List<FileMetadata> listRecursive()
+	{
+		return local.listContents("tree", true);
+	}
+
+	/**
+	 * Walks the same tree without keeping the listing in memory.
+	 */
+	@Benchmark
+	public long iterateRecursive()
+	{
+		long count = 0;
+		try (ContentIterator iterator = local.iterateContents("tree", true)) {
+			while (iterator.hasNext()) {
+				iterator.next();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public List<FileMetadata> listOneDirectory()
+	{
+		return local.listContents("tree/dir0", false);
+	}
+}
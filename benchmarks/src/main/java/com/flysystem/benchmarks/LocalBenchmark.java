@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.benchmarks;
+
+import com.flysystem.core.Config;
+import com.flysystem.core.adapter.local.Local;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes through the Local adapter, from a few bytes to several megabytes per file.
+ *
+ * @author Zeger Hoogeboom
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalBenchmark
+{
+	@Param({"100", "8192", "1048576", "16777216"})
+	public int size;
+
+	private File root;
+	private Local local;
+	private String contents;
+	private byte[] bytes;
+	private WritableByteChannel discard;
+	private final Config config = new Config();
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		root = BenchmarkFiles.createRoot();
+		local = new Local(root.getPath());
+		contents = BenchmarkFiles.contents(size);
+		bytes = contents.getBytes("US-ASCII");
+		discard = Channels.newChannel(new NullOutputStream());
+		local.write("read.txt", contents);
+		local.write("update.txt", contents);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchmarkFiles.delete(root);
+	}
+
+	@Benchmark
+	public String read()
+	{
+		return local.read("read.txt");
+	}
+
+	@Benchmark
+	public long readToChannel()
+	{
+		return local.readStream("read.txt", discard);
+	}
+
+	@Benchmark
+	public boolean update()
+	{
+		return local.update("update.txt", contents, config);
+	}
+
+	@Benchmark
+	public boolean updateStream()
+	{
+		InputStream stream = new ByteArrayInputStream(bytes);
+		return local.updateStream("update.txt", stream, config);
+	}
+
+	/**
+	 * Creates a new file each time, including the existence check and setting permissions, then removes it again.
+	 */
+	@Benchmark
+	public boolean writeAndDelete()
+	{
+		local.write("write.txt", contents, config);
+		return local.delete("write.txt");
+	}
+}
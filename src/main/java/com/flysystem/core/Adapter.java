@@ -22,9 +22,58 @@
 
 package com.flysystem.core;
 
+import com.flysystem.core.exception.FileExistsException;
+import com.flysystem.core.exception.FileNotFoundException;
+
+import java.io.InputStream;
+
 /**
  * @author Zeger Hoogeboom
  */
 public interface Adapter extends Read, Write
 {
+	/**
+	 * Retrieve a read-stream for a file.
+	 * The caller is responsible for closing the returned stream.
+	 *
+	 * @param path The path to the file.
+	 * @return A stream over the raw file bytes.
+	 * @throws FileNotFoundException
+	 */
+	InputStream readStream(String path) throws FileNotFoundException;
+
+	/**
+	 * Lazily list the contents of a directory.
+	 *
+	 * @param directory The directory to list.
+	 * @param recursive Whether to list recursively.
+	 * @return An iterator producing file metadata on demand.
+	 */
+	ContentIterator iterateContents(String directory, boolean recursive);
+
+	/**
+	 * Write a new file using a stream.
+	 * The stream is consumed until EOF but not closed.
+	 *
+	 * @param path     The path of the new file.
+	 * @param contents The stream providing the file contents.
+	 * @param config   A configuration array.
+	 * @return bool True on success, false on failure.
+	 * @throws FileExistsException
+	 */
+	boolean writeStream(String path, InputStream contents, Config config);
+	boolean writeStream(String path, InputStream contents);
+
+	/**
+	 * Update an existing file using a stream.
+	 * The stream is consumed until EOF but not closed.
+	 *
+	 * @param path     The path of the existing file.
+	 * @param contents The stream providing the file contents.
+	 * @param config   A configuration array.
+	 * @return bool True on success, false on failure.
+	 * @throws FileNotFoundException
+	 */
+	boolean updateStream(String path, InputStream contents, Config config);
+	boolean updateStream(String path, InputStream contents);
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Static helpers for {@link ContentIterator}.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class ContentIterators
+{
+	/**
+	 * Wrap already materialised contents.
+	 */
+	public static ContentIterator of(Iterable<FileMetadata> contents)
+	{
+		final Iterator<FileMetadata> iterator = contents.iterator();
+		return new ContentIterator()
+		{
+			public boolean hasNext()
+			{
+				return iterator.hasNext();
+			}
+
+			public FileMetadata next()
+			{
+				return iterator.next();
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+
+			public void close()
+			{
+			}
+		};
+	}
+
+	/**
+	 * Drain the remaining contents into a list and close the iterator.
+	 */
+	public static List<FileMetadata> toList(ContentIterator iterator)
+	{
+		try {
+			List<FileMetadata> contents = new ArrayList<>();
+			while (iterator.hasNext()) {
+				contents.add(iterator.next());
+			}
+			return contents;
+		} finally {
+			iterator.close();
+		}
+	}
+}
@@ -59,4 +59,15 @@ public class Directory extends Handler
 		return getContents(false);
 	}
 
+	/**
+	 * Lazily iterate the directory contents.
+	 *
+	 * @param recursive
+	 * @return directory contents, read on demand
+	 */
+	public ContentIterator iterateContents(boolean recursive)
+	{
+		return filesystem.iterateContents(this.path, recursive);
+	}
+
 }
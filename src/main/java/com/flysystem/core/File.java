@@ -26,6 +26,8 @@ import com.flysystem.core.exception.FileExistsException;
 import com.flysystem.core.exception.FileNotFoundException;
 import com.google.common.base.Optional;
 
+import java.io.InputStream;
+
 /**
  * @author Zeger Hoogeboom
  */
@@ -62,6 +64,16 @@ public class File extends Handler
 		return this.filesystem.read(this.path);
 	}
 
+	/**
+	 * Retrieve a read-stream for the file.
+	 *
+	 * @return stream over the file contents, to be closed by the caller
+	 */
+	public InputStream readStream() throws FileNotFoundException
+	{
+		return this.filesystem.readStream(this.path);
+	}
+
 	/**
 	 * Write the new file.
 	 *
@@ -92,6 +104,16 @@ public class File extends Handler
 		return this.filesystem.put(this.path, content);
 	}
 
+	/**
+	 * Create the file or update if exists, using a stream.
+	 *
+	 * @return bool success boolean
+	 */
+	public boolean putStream(InputStream contents)
+	{
+		return this.filesystem.putStream(this.path, contents);
+	}
+
 	/**
 	 * Rename the file.
 	 *
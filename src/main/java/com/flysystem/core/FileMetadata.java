@@ -22,6 +22,10 @@
 
 package com.flysystem.core;
 
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.io.Files;
+
 import java.io.File;
 
 /**
@@ -35,6 +39,7 @@ public class FileMetadata
 	String mimetype;
 	Long timestamp;
 	String type;
+	private Supplier<String> mimetypeResolver;
 
 	public FileMetadata(String path)
 	{
@@ -81,14 +86,64 @@ public class FileMetadata
 		this.visibility = visibility;
 	}
 
-	public String getMimetype()
+	/**
+	 * Get the mimetype, resolving it on first access when it was set lazily. Metadata is shared between threads
+	 * through caches, so the mimetype and its resolver are only accessed while holding this object's lock.
+	 * Threads that ask at the same time wait for a single resolution.
+	 */
+	public synchronized String getMimetype()
 	{
+		Supplier<String> resolver = mimetypeResolver;
+		if (resolver != null) {
+			mimetype = resolver.get();
+			mimetypeResolver = null;
+		}
 		return mimetype;
 	}
 
-	public void setMimetype(String mimetype)
+	public synchronized void setMimetype(String mimetype)
 	{
 		this.mimetype = mimetype;
+		this.mimetypeResolver = null;
+	}
+
+	/**
+	 * Defer mimetype detection until the mimetype is first requested.
+	 * Listings can then be built from stat calls alone, without reading file contents.
+	 */
+	public synchronized void setMimetype(Supplier<String> resolver)
+	{
+		this.mimetype = null;
+		this.mimetypeResolver = resolver;
+	}
+
+	/**
+	 * Whether the mimetype is known, or still has to be resolved on first access.
+	 */
+	public synchronized boolean isMimetypeResolved()
+	{
+		return mimetypeResolver == null;
+	}
+
+	/**
+	 * Copy this metadata for a path. For the same path, a mimetype that was set lazily stays lazy.
+	 * A lazy mimetype is bound to the old path, so for another path it is dropped, and so is a known
+	 * mimetype when the extension changes. The mimetype then has to be detected again for the new path.
+	 */
+	public synchronized FileMetadata copy(String path)
+	{
+		FileMetadata copy = new FileMetadata(path, size, visibility, mimetype, timestamp, type);
+		if (Objects.equal(path, this.path)) {
+			copy.mimetypeResolver = mimetypeResolver;
+		} else if (mimetypeResolver != null || ! sameExtension(path, this.path)) {
+			copy.mimetype = null;
+		}
+		return copy;
+	}
+
+	private static boolean sameExtension(String path, String other)
+	{
+		return path != null && other != null && Files.getFileExtension(path).equals(Files.getFileExtension(other));
 	}
 
 	public Long getTimestamp()
@@ -25,9 +25,14 @@ package com.flysystem.core;
 import com.flysystem.core.exception.FileExistsException;
 import com.flysystem.core.exception.FileNotFoundException;
 import com.flysystem.core.exception.RootViolationException;
+import com.flysystem.core.metrics.EventRecorder;
+import com.flysystem.core.metrics.Events;
+import com.flysystem.core.metrics.InstrumentedAdapter;
+import com.flysystem.core.metrics.OperationTracer;
 import com.flysystem.core.util.PathUtil;
 import com.google.common.base.Strings;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -35,14 +40,39 @@ import java.util.List;
  */
 public class FilesystemImpl implements Filesystem
 {
+	/**
+	 * Config key that skips the existence checks done before each operation. The adapter is then expected
+	 * to throw FileNotFoundException and FileExistsException itself, which saves a round trip per call.
+	 */
+	public static final String OPTIMISTIC = "optimistic";
+
+	/**
+	 * Config key with a number of milliseconds. Operations that take at least this long are logged with their
+	 * path, adapter, bytes and duration, see {@link OperationTracer}.
+	 */
+	public static final String SLOW_OPERATION_THRESHOLD = "slow_operation_threshold";
+
+	/**
+	 * Config key to log 1 in this many operations with every adapter call they made, see {@link OperationTracer}.
+	 */
+	public static final String TRACE_SAMPLE_RATE = "trace_sample_rate";
+
+	private static final String LAYER = "Filesystem";
 
 	private Adapter adapter;
 	private Config config;
+	private OperationTracer tracer;
 
 	public FilesystemImpl(Adapter adapter, Config config)
 	{
 		this.adapter = adapter;
 		this.config = config;
+		long threshold = number(config, SLOW_OPERATION_THRESHOLD);
+		int sampleRate = (int) Math.min(number(config, TRACE_SAMPLE_RATE), Integer.MAX_VALUE);
+		if (threshold > 0 || sampleRate > 0) {
+			this.tracer = new OperationTracer(adapter.getClass().getSimpleName(), threshold, sampleRate);
+			this.adapter = new InstrumentedAdapter(adapter, tracer);
+		}
 	}
 
 	public Handler get(String path, Handler handler)
@@ -72,63 +102,117 @@ public class FilesystemImpl implements Filesystem
 	public boolean has(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		return adapter.has(path);
+		EventRecorder.Event event = begin("has", path);
+		boolean result = adapter.has(path);
+		Events.end(event, 0, 0);
+		return result;
 	}
 
 	public String read(String path) throws FileNotFoundException
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.read(path);
+		EventRecorder.Event event = begin("read", path);
+		expectPresent(path);
+		String contents = adapter.read(path);
+		Events.end(event, contents);
+		return contents;
+	}
+
+	public InputStream readStream(String path) throws FileNotFoundException
+	{
+		path = PathUtil.normalizePath(path);
+		EventRecorder.Event event = begin("readStream", path);
+		expectPresent(path);
+		InputStream stream = adapter.readStream(path);
+		Events.end(event, 0, 0);
+		return stream;
 	}
 
 	public List<FileMetadata> listContents(String directory, boolean recursive)
 	{
 		directory = PathUtil.normalizePath(directory);
-		return adapter.listContents(directory, recursive);
+		EventRecorder.Event event = begin("listContents", directory);
+		List<FileMetadata> contents = adapter.listContents(directory, recursive);
+		Events.end(event, 0, contents == null ? 0 : contents.size());
+		return contents;
+	}
+
+	public ContentIterator iterateContents(String directory, boolean recursive)
+	{
+		directory = PathUtil.normalizePath(directory);
+		EventRecorder.Event event = begin("iterateContents", directory);
+		ContentIterator contents = adapter.iterateContents(directory, recursive);
+		Events.end(event, 0, 0);
+		return contents;
 	}
 
 	public FileMetadata getMetadata(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.getMetadata(path);
+		EventRecorder.Event event = begin("getMetadata", path);
+		expectPresent(path);
+		FileMetadata result = adapter.getMetadata(path);
+		Events.end(event, 0, 0);
+		return result;
 	}
 
 	public Long getSize(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.getSize(path);
+		EventRecorder.Event event = begin("getSize", path);
+		expectPresent(path);
+		Long result = adapter.getSize(path);
+		Events.end(event, 0, 0);
+		return result;
 	}
 
 	public String getMimetype(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.getMimetype(path);
+		EventRecorder.Event event = begin("getMimetype", path);
+		expectPresent(path);
+		String result = adapter.getMimetype(path);
+		Events.end(event, 0, 0);
+		return result;
 	}
 
 	public Long getTimestamp(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.getTimestamp(path);
+		EventRecorder.Event event = begin("getTimestamp", path);
+		expectPresent(path);
+		Long result = adapter.getTimestamp(path);
+		Events.end(event, 0, 0);
+		return result;
 	}
 
 	public Visibility getVisibility(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.getVisibility(path);
+		EventRecorder.Event event = begin("getVisibility", path);
+		expectPresent(path);
+		Visibility result = adapter.getVisibility(path);
+		Events.end(event, 0, 0);
+		return result;
 	}
 
 	public boolean put(String path, String contents, Config config)
 	{
 		path = PathUtil.normalizePath(path);
 		config = withConfigFallback(config);
-		if (has(path)) return adapter.update(path, contents, config);
-		return adapter.write(path, contents, config);
+		EventRecorder.Event event = begin("put", path);
+		boolean result;
+		if (! isOptimistic()) {
+			result = adapter.has(path) ? adapter.update(path, contents, config) : adapter.write(path, contents, config);
+		} else {
+			try {
+				result = adapter.update(path, contents, config);
+			} catch (FileNotFoundException e) {
+				result = adapter.write(path, contents, config);
+			}
+		}
+		Events.end(event, contents);
+		return result;
 	}
 
 	public boolean put(String path, String contents)
@@ -136,21 +220,50 @@ public class FilesystemImpl implements Filesystem
 		return put(path, contents, new Config());
 	}
 
+	public boolean putStream(String path, InputStream contents, Config config)
+	{
+		path = PathUtil.normalizePath(path);
+		config = withConfigFallback(config);
+		EventRecorder.Event event = begin("putStream", path);
+		boolean result;
+		if (! isOptimistic()) {
+			result = adapter.has(path) ? adapter.updateStream(path, contents, config) : adapter.writeStream(path, contents, config);
+		} else {
+			try {
+				result = adapter.updateStream(path, contents, config);
+			} catch (FileNotFoundException e) {
+				result = adapter.writeStream(path, contents, config);
+			}
+		}
+		Events.end(event, 0, 0);
+		return result;
+	}
+
+	public boolean putStream(String path, InputStream contents)
+	{
+		return putStream(path, contents, new Config());
+	}
+
 	public String readAndDelete(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		String contents = read(path);
-		delete(path);
+		EventRecorder.Event event = begin("readAndDelete", path);
+		expectPresent(path);
+		String contents = adapter.read(path);
+		adapter.delete(path);
+		Events.end(event, contents);
 		return contents;
 	}
 
 	public boolean write(String path, String contents, Config config)
 	{
 		path = PathUtil.normalizePath(path);
-		assertAbsent(path);
+		EventRecorder.Event event = begin("write", path);
+		expectAbsent(path);
 		config = withConfigFallback(config);
-		return adapter.write(path, contents, config);
+		boolean result = adapter.write(path, contents, config);
+		Events.end(event, contents);
+		return result;
 	}
 
 	public boolean write(String path, String contents)
@@ -161,9 +274,12 @@ public class FilesystemImpl implements Filesystem
 	public boolean update(String path, String contents, Config config)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
+		EventRecorder.Event event = begin("update", path);
+		expectPresent(path);
 		config = withConfigFallback(config);
-		return adapter.update(path, contents, config);
+		boolean result = adapter.update(path, contents, config);
+		Events.end(event, contents);
+		return result;
 	}
 
 	public boolean update(String path, String contents)
@@ -171,32 +287,77 @@ public class FilesystemImpl implements Filesystem
 		return update(path, contents, new Config());
 	}
 
+	public boolean writeStream(String path, InputStream contents, Config config)
+	{
+		path = PathUtil.normalizePath(path);
+		EventRecorder.Event event = begin("writeStream", path);
+		expectAbsent(path);
+		config = withConfigFallback(config);
+		boolean result = adapter.writeStream(path, contents, config);
+		Events.end(event, 0, 0);
+		return result;
+	}
+
+	public boolean writeStream(String path, InputStream contents)
+	{
+		return writeStream(path, contents, new Config());
+	}
+
+	public boolean updateStream(String path, InputStream contents, Config config)
+	{
+		path = PathUtil.normalizePath(path);
+		EventRecorder.Event event = begin("updateStream", path);
+		expectPresent(path);
+		config = withConfigFallback(config);
+		boolean result = adapter.updateStream(path, contents, config);
+		Events.end(event, 0, 0);
+		return result;
+	}
+
+	public boolean updateStream(String path, InputStream contents)
+	{
+		return updateStream(path, contents, new Config());
+	}
+
 	public boolean rename(String from, String to)
 	{
 		from = PathUtil.normalizePath(from);
 		to = PathUtil.normalizePath(to);
-		assertPresent(from);
-		assertAbsent(to);
-		config = withConfigFallback(config);
+		EventRecorder.Event event = begin("rename", from);
+		expectPresent(from);
+		expectAbsent(to);
 		adapter.rename(from, to);
+		Events.end(event, 0, 1);
 		return true;
 	}
 
-	public boolean copy(String path, String newpath)
+	public boolean copy(String path, String newpath, Config config)
 	{
 		path = PathUtil.normalizePath(path);
 		newpath = PathUtil.normalizePath(newpath);
-		assertPresent(path);
-		assertAbsent(newpath);
-		adapter.copy(path, newpath);
+		EventRecorder.Event event = begin("copy", path);
+		expectPresent(path);
+		expectAbsent(newpath);
+		config = withConfigFallback(config);
+		adapter.copy(path, newpath, config);
+		Events.end(event, 0, 1);
 		return true;
 	}
 
+	public boolean copy(String path, String newpath)
+	{
+		return copy(path, newpath, new Config());
+	}
+
 	public boolean delete(String path)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.delete(path);
+		EventRecorder.Event event = begin("delete", path);
+		expectPresent(path);
+		boolean deleted = adapter.delete(path);
+		if (! deleted && isOptimistic()) assertPresent(path);
+		Events.end(event, 0, deleted ? 1 : 0);
+		return deleted;
 	}
 
 	public boolean deleteDir(String dirname)
@@ -205,14 +366,21 @@ public class FilesystemImpl implements Filesystem
 		if (Strings.isNullOrEmpty(dirname)) {
 			throw new RootViolationException("Root directories can not be deleted.");
 		}
-		return adapter.deleteDir(dirname);
+		EventRecorder.Event event = begin("deleteDir", dirname);
+		boolean deleted = adapter.deleteDir(dirname);
+		Events.end(event, 0, 0);
+		return deleted;
 	}
 
 	public boolean createDir(String dirname, Config config)
 	{
 		dirname = PathUtil.normalizePath(dirname);
-		assertAbsent(dirname);
-		return adapter.createDir(dirname, config);
+		EventRecorder.Event event = begin("createDir", dirname);
+		expectAbsent(dirname);
+		boolean created = adapter.createDir(dirname, config);
+		if (! created && isOptimistic()) assertAbsent(dirname);
+		Events.end(event, 0, created ? 1 : 0);
+		return created;
 	}
 
 	public boolean createDir(String dirname)
@@ -223,18 +391,81 @@ public class FilesystemImpl implements Filesystem
 	public boolean setVisibility(String path, Visibility visibility)
 	{
 		path = PathUtil.normalizePath(path);
-		assertPresent(path);
-		return adapter.setVisibility(path, visibility);
+		EventRecorder.Event event = begin("setVisibility", path);
+		expectPresent(path);
+		boolean changed = adapter.setVisibility(path, visibility);
+		if (! changed && isOptimistic()) assertPresent(path);
+		Events.end(event, 0, changed ? 1 : 0);
+		return changed;
+	}
+
+	/**
+	 * Start an event for an operation, traced when slow operations are logged or operations are sampled.
+	 */
+	private EventRecorder.Event begin(String operation, String path)
+	{
+		return tracer == null ? Events.begin(LAYER, operation, path) : tracer.begin(LAYER, operation, path);
+	}
+
+	/**
+	 * A whole number from the config, which may also be given as a string, like config loaded from properties.
+	 * 0 when the key is not set.
+	 */
+	private static long number(Config config, String key)
+	{
+		Object value = config == null ? null : config.get(key);
+		if (value == null) return 0;
+		if (value instanceof Number) return ((Number) value).longValue();
+		try {
+			return Long.parseLong(value.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Config key " + key + " must be a whole number, got \"" + value + "\"", e);
+		}
+	}
+
+	/**
+	 * A flag from the config, which may also be given as the string "true" or "false". False when the key is not set.
+	 */
+	private static boolean flag(Config config, String key)
+	{
+		Object value = config == null ? null : config.get(key);
+		if (value == null) return false;
+		if (value instanceof Boolean) return (Boolean) value;
+		String text = value.toString().trim();
+		if ("true".equalsIgnoreCase(text)) return true;
+		if ("false".equalsIgnoreCase(text)) return false;
+		throw new IllegalArgumentException("Config key " + key + " must be true or false, got \"" + value + "\"");
+	}
+
+	private boolean isOptimistic()
+	{
+		return flag(config, OPTIMISTIC);
+	}
+
+	/**
+	 * Check that a path exists before operating on it, unless running optimistically.
+	 */
+	private void expectPresent(String path)
+	{
+		if (! isOptimistic()) assertPresent(path);
+	}
+
+	/**
+	 * Check that a path does not exist before operating on it, unless running optimistically.
+	 */
+	private void expectAbsent(String path)
+	{
+		if (! isOptimistic()) assertAbsent(path);
 	}
 
 	private void assertPresent(String path)
 	{
-		if (!has(path)) throw new FileNotFoundException(path);
+		if (! adapter.has(path)) throw new FileNotFoundException(path);
 	}
 
 	private void assertAbsent(String path)
 	{
-		if (has(path)) throw new FileExistsException(path);
+		if (adapter.has(path)) throw new FileExistsException(path);
 	}
 
 	protected Config withConfigFallback(Config config)
@@ -30,11 +30,22 @@ public class MetadataWrapper
 {
 	private FileMetadata fileMetadata;
 	private Object object;
+	private boolean partial;
 
 	public MetadataWrapper(FileMetadata fileMetadata, Object object)
+	{
+		this(fileMetadata, object, false);
+	}
+
+	/**
+	 * @param partial Whether the metadata only holds what was learned from writes and single fields,
+	 *                rather than a complete read from the adapter.
+	 */
+	public MetadataWrapper(FileMetadata fileMetadata, Object object, boolean partial)
 	{
 		this.fileMetadata = fileMetadata;
 		this.object = object;
+		this.partial = partial;
 	}
 
 	public FileMetadata getFileMetadata()
@@ -56,4 +67,9 @@ public class MetadataWrapper
 	{
 		this.object = object;
 	}
+
+	public boolean isPartial()
+	{
+		return partial;
+	}
 }
@@ -25,53 +25,58 @@ package com.flysystem.core;
 import com.flysystem.core.exception.FileExistsException;
 import com.flysystem.core.exception.FileNotFoundException;
 
-import java.io.OutputStream;
-import java.util.Map;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
+ * Channel based access to file contents. Implementations copy between channels
+ * without materialising the contents on the heap.
+ *
  * @author Zeger Hoogeboom
  */
 public interface Stream
 {
 
 	/**
-	 * Write a new file using a stream.
+	 * Write a new file from a channel. The source is read until EOF but not closed.
 	 *
-	 * @param path     The path of the new file.
-	 * @param resource resource The file handle.
-	 * @param config   An optional configuration array.
+	 * @param path   The path of the new file.
+	 * @param source The channel providing the file contents.
+	 * @param config An optional configuration array.
 	 * @return bool True on success, false on failure.
-	 * @throws InvalidArgumentException If resource is not a file handle.
 	 * @throws FileExistsException
 	 */
-	boolean writeStream(String path, OutputStream resource, Config config);
-	boolean writeStream(String path, OutputStream resource);
+	boolean writeStream(String path, ReadableByteChannel source, Config config);
+	boolean writeStream(String path, ReadableByteChannel source);
 
 	/**
-	 * Update an existing file using a stream.
+	 * Update an existing file from a channel. The source is read until EOF but not closed.
 	 *
-	 * @param path     The path of the existing file.
-	 * @param resource resource The file handle.
-	 * @param config   An optional configuration array.
+	 * @param path   The path of the existing file.
+	 * @param source The channel providing the file contents.
+	 * @param config An optional configuration array.
 	 * @return bool True on success, false on failure.
-	 * @throws InvalidArgumentException If resource is not a file handle.
 	 * @throws FileNotFoundException
 	 */
-	boolean updateStream(String path, OutputStream resource, Config config);
-	boolean updateStream(String path, OutputStream resource);
+	boolean updateStream(String path, ReadableByteChannel source, Config config);
+	boolean updateStream(String path, ReadableByteChannel source);
 
 	/**
-	 * Retrieves a read-stream for a path.
+	 * Retrieves a read-channel for a path. The caller is responsible for closing it.
 	 *
 	 * @param path The path to the file.
-	 * @return resource|false The path resource or false on failure.
+	 * @return The channel positioned at the start of the file.
 	 * @throws FileNotFoundException
 	 */
-	String readStream(String path);
+	ReadableByteChannel readChannel(String path);
 
 	/**
-	 * Create a file or update if exists.
+	 * Copy the contents of a file into a channel. The target is not closed.
+	 *
+	 * @param path   The path to the file.
+	 * @param target The channel to write the file contents to.
+	 * @return The number of bytes transferred.
+	 * @throws FileNotFoundException
 	 */
-	boolean putStream(String path, OutputStream resource, Config config);
-	boolean putStream(String path, OutputStream resource);
+	long readStream(String path, WritableByteChannel target);
 }
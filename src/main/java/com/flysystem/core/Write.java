@@ -70,10 +70,12 @@ interface Write
 	 *
 	 * @param path    Path to the existing file.
 	 * @param newpath The new path of the file.
+	 * @param config  An optional configuration array.
 	 * @return bool True on success, false on failure.
 	 * @throws FileExistsException   Thrown if newpath exists.
 	 * @throws FileNotFoundException Thrown if String path does not exist.
 	 */
+	boolean copy(String path, String newpath, Config config);
 	boolean copy(String path, String newpath);
 
 	/**
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.adapter.local;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Strategy used by the local adapter to copy a file, set through the "copy_mode" config key,
+ * either as a CopyMode or by its name, like "hardlink".
+ *
+ * @author Zeger Hoogeboom
+ */
+public enum CopyMode
+{
+	/**
+	 * Copy the bytes, letting the kernel move them between the files.
+	 */
+	COPY,
+
+	/**
+	 * Create a hard link to the source. Falls back to COPY when linking is not possible,
+	 * for example across volumes. The copy shares its inode with the source, so changing the permissions
+	 * of one changes both. Updates through the adapter write a new file and move it in place, which breaks
+	 * the link, so the contents stay independent. This relies on the "unix" attribute view: on other
+	 * platforms, and for anything that writes to the file outside the adapter, the contents stay shared too.
+	 */
+	HARDLINK,
+
+	/**
+	 * Create a copy-on-write clone (reflink) of the source. Falls back to COPY when the
+	 * filesystem does not support it.
+	 */
+	CLONE;
+
+	/**
+	 * The mode for a config value, which may be a CopyMode or its name. Null means COPY.
+	 *
+	 * @throws IllegalArgumentException When the value names no mode.
+	 */
+	public static CopyMode of(Object value)
+	{
+		if (value == null) return COPY;
+		if (value instanceof CopyMode) return (CopyMode) value;
+		try {
+			return valueOf(value.toString().trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown copy_mode \"" + value + "\", expected one of " + Arrays.toString(values()));
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.adapter.local;
+
+import com.flysystem.core.ContentIterator;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.exception.DirectoryNotFoundException;
+import com.flysystem.core.exception.FileNotFoundException;
+import com.flysystem.core.exception.FlysystemGenericException;
+import com.google.common.collect.AbstractIterator;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Depth-first walk over the files below a directory, holding one open directory stream per level.
+ * Directories are descended into when recursive but are not returned themselves.
+ *
+ * @author Zeger Hoogeboom
+ */
+class DirectoryIterator extends AbstractIterator<FileMetadata> implements ContentIterator
+{
+	private final Local local;
+	private final boolean recursive;
+	private final Deque<DirectoryStream<Path>> streams = new ArrayDeque<>();
+	private final Deque<Iterator<Path>> iterators = new ArrayDeque<>();
+
+	DirectoryIterator(Local local, Path directory, boolean recursive)
+	{
+		this.local = local;
+		this.recursive = recursive;
+		try {
+			push(directory);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(directory.toString());
+		} catch (NotDirectoryException e) {
+			throw new DirectoryNotFoundException(directory.toString());
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	@Override
+	protected FileMetadata computeNext()
+	{
+		try {
+			while (! iterators.isEmpty()) {
+				Iterator<Path> iterator = iterators.peek();
+				if (! iterator.hasNext()) {
+					pop();
+					continue;
+				}
+				Path path = iterator.next();
+				BasicFileAttributes attributes;
+				try {
+					attributes = FileMetadataConverter.readAttributes(path);
+				} catch (NoSuchFileException e) {
+					continue; // removed while listing
+				}
+				if (attributes.isDirectory()) {
+					if (recursive) push(path);
+					continue;
+				}
+				FileMetadata metadata = FileMetadataConverter.fromAttributes(path.toString(), attributes, local.getMimeTypeDetector());
+				metadata.setPath(local.removePathPrefix(path.toString()));
+				return metadata;
+			}
+		} catch (IOException | DirectoryIteratorException e) {
+			close();
+			throw new FlysystemGenericException(e);
+		}
+		return endOfData();
+	}
+
+	public void close()
+	{
+		while (! streams.isEmpty()) {
+			pop();
+		}
+	}
+
+	private void push(Path directory) throws IOException
+	{
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+		streams.push(stream);
+		iterators.push(stream.iterator());
+	}
+
+	private void pop()
+	{
+		iterators.pop();
+		try {
+			streams.pop().close();
+		} catch (IOException e) {
+			// nothing left to read from it
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.adapter.local;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of a file's contents, either memory-mapped or read into a single heap buffer.
+ * Mapped files are split into regions of at most 2 GB.
+ * Closing a mapped buffer releases the mapping immediately instead of waiting for the garbage collector;
+ * region buffers obtained earlier must not be used afterwards.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class FileBuffer implements Closeable
+{
+	private static final int MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+	private final ByteBuffer[] regions;
+	private final int regionSize;
+	private final long size;
+	private final boolean mapped;
+	private volatile boolean closed;
+
+	private FileBuffer(ByteBuffer[] regions, int regionSize, long size, boolean mapped)
+	{
+		this.regions = regions;
+		this.regionSize = regionSize;
+		this.size = size;
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Map a file into memory in regions of at most 2 GB.
+	 */
+	public static FileBuffer map(FileChannel channel) throws IOException
+	{
+		return map(channel, MAX_REGION_SIZE);
+	}
+
+	/**
+	 * Map a file into memory in regions of the given size.
+	 */
+	public static FileBuffer map(FileChannel channel, int regionSize) throws IOException
+	{
+		Preconditions.checkArgument(regionSize > 0, "Region size must be positive.");
+		long size = channel.size();
+		int count = (int) Math.max(1, (size + regionSize - 1) / regionSize);
+		ByteBuffer[] regions = new ByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long position = (long) i * regionSize;
+			regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+		}
+		return new FileBuffer(regions, regionSize, size, true);
+	}
+
+	/**
+	 * Read a file into a single heap buffer. Only suitable for files smaller than 2 GB.
+	 */
+	public static FileBuffer read(FileChannel channel) throws IOException
+	{
+		long size = channel.size();
+		Preconditions.checkArgument(size <= MAX_REGION_SIZE, "File too large to read into a single buffer, map it instead.");
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+			// keep reading until the buffer is full
+		}
+		buffer.flip();
+		return new FileBuffer(new ByteBuffer[] {buffer.asReadOnlyBuffer()}, MAX_REGION_SIZE, size, false);
+	}
+
+	public long size()
+	{
+		return size;
+	}
+
+	public boolean isMapped()
+	{
+		return mapped;
+	}
+
+	public int regionCount()
+	{
+		return regions.length;
+	}
+
+	/**
+	 * Get an independent read-only view of a region, positioned at its start.
+	 */
+	public ByteBuffer region(int index)
+	{
+		ensureOpen();
+		return regions[index].duplicate();
+	}
+
+	/**
+	 * Get the byte at an absolute position in the file.
+	 */
+	public byte get(long position)
+	{
+		ensureOpen();
+		if (position < 0 || position >= size) throw new IndexOutOfBoundsException(String.valueOf(position));
+		return regions[(int) (position / regionSize)].get((int) (position % regionSize));
+	}
+
+	@Override
+	public void close()
+	{
+		if (closed) return;
+		closed = true;
+		if (! mapped) return;
+		for (ByteBuffer region : regions) {
+			Unmapper.unmap((MappedByteBuffer) region);
+		}
+	}
+
+	private void ensureOpen()
+	{
+		if (closed) throw new IllegalStateException("The file buffer has been closed.");
+	}
+
+	/**
+	 * Releases mappings through the JDK internals, since there is no public API for it.
+	 * When neither Unsafe.invokeCleaner (9+) nor DirectBuffer.cleaner (8) is reachable
+	 * the mapping is left to the garbage collector.
+	 */
+	private static class Unmapper
+	{
+		private static final Object unsafe;
+		private static final Method invokeCleaner;
+
+		static {
+			Object instance = null;
+			Method method = null;
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field field = unsafeClass.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				instance = field.get(null);
+			} catch (Exception e) {
+				method = null;
+			}
+			unsafe = instance;
+			invokeCleaner = method;
+		}
+
+		static void unmap(MappedByteBuffer buffer)
+		{
+			try {
+				if (invokeCleaner != null) {
+					invokeCleaner.invoke(unsafe, buffer);
+					return;
+				}
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			} catch (Exception e) {
+				// no way to unmap eagerly, the garbage collector releases the mapping
+			}
+		}
+	}
+}
@@ -26,10 +26,12 @@ import com.flysystem.core.exception.FileExistsException;
 import com.flysystem.core.exception.FileNotFoundException;
 import com.flysystem.core.exception.FlysystemGenericException;
 import com.google.common.io.Files;
-import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * @author Zeger Hoogeboom
@@ -41,46 +43,133 @@ public class FileCommands
 	 */
 	public interface ManipulateFileCommand
 	{
-		void execute(File source, File target) throws FlysystemGenericException;
+		/**
+		 * @return The number of bytes copied, 0 when the target shares its data with the source.
+		 */
+		long execute(File source, File target) throws FlysystemGenericException;
 	}
 
+	/**
+	 * Copies through FileChannel.transferTo, so the kernel moves the bytes without a user-space buffer.
+	 */
 	public static class CopyFileCommand implements ManipulateFileCommand
 	{
-		public void execute(File source, File target)
+		public long execute(File source, File target)
 		{
-			try {
-				FileUtils.copyFile(source, target);
+			try (FileChannel input = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+			     FileChannel output = FileChannel.open(target.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				return transfer(input, output);
 			} catch (IOException e) {
 				throw new FlysystemGenericException(e);
 			}
 		}
 	}
 
+	/**
+	 * Hard links the target to the source, copying instead when links are not supported.
+	 */
+	public static class LinkFileCommand implements ManipulateFileCommand
+	{
+		public long execute(File source, File target)
+		{
+			try {
+				java.nio.file.Files.createLink(target.toPath(), source.toPath());
+				return 0;
+			} catch (UnsupportedOperationException | IOException e) {
+				return new CopyFileCommand().execute(source, target);
+			}
+		}
+	}
+
+	/**
+	 * Clones the source with a copy-on-write reflink, copying instead when the filesystem does not support it.
+	 * The JDK has no reflink API, so this delegates to the platform's cp.
+	 */
+	public static class CloneFileCommand implements ManipulateFileCommand
+	{
+		public long execute(File source, File target)
+		{
+			return reflink(source, target) ? 0 : new CopyFileCommand().execute(source, target);
+		}
+
+		private boolean reflink(File source, File target)
+		{
+			if (File.separatorChar != '/') return false;
+			try {
+				Process process = new ProcessBuilder("cp", "--reflink=always", source.getPath(), target.getPath())
+						.redirectErrorStream(true)
+						.start();
+				process.getOutputStream().close();
+				process.getInputStream().close();
+				if (process.waitFor() == 0) return true;
+			} catch (IOException e) {
+				// cp is not available, fall through to a regular copy
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			target.delete();
+			return false;
+		}
+	}
+
 	public static class MoveFileCommand implements ManipulateFileCommand
 	{
-		public void execute(File source, File target)
+		public long execute(File source, File target)
 		{
 			try {
 				Files.move(source, target);
+				return 0;
 			} catch (IOException e) {
 				throw new FlysystemGenericException(e);
 			}
 		}
 	}
 
+	/**
+	 * Get the command that copies a file using the given mode.
+	 */
+	public static ManipulateFileCommand copyCommand(CopyMode mode)
+	{
+		switch (mode) {
+			case HARDLINK: return new LinkFileCommand();
+			case CLONE: return new CloneFileCommand();
+			default: return new CopyFileCommand();
+		}
+	}
+
+	/**
+	 * Transfer the remainder of a file channel into a target channel, leaving the copy to the kernel where possible.
+	 *
+	 * @return The number of bytes transferred.
+	 */
+	static long transfer(FileChannel source, WritableByteChannel target) throws IOException
+	{
+		long start = source.position();
+		long size = source.size();
+		long position = start;
+		while (position < size) {
+			long transferred = source.transferTo(position, size - position, target);
+			if (transferred <= 0) break;
+			position += transferred;
+		}
+		source.position(position);
+		return position - start;
+	}
+
 	/**
 	 *
 	 * @param local The local filesystem to check existence of files against.
 	 * @param source Must exists. Throws FileNotFoundException otherwise.
 	 * @param target Must not exist. Throws FileExistsException otherwise.
 	 * @param command The command to be executed.
+	 * @return The number of bytes the command copied.
 	 */
-	public static void manipulate(Local local, File source, File target, ManipulateFileCommand command)
+	public static long manipulate(Local local, File source, File target, ManipulateFileCommand command)
 	{
 		validateIsFileAndExists(source);
 		if (target.exists()) throw new FileExistsException(target.getPath());
 		local.ensureDirectory(target);
-		command.execute(source, target);
+		return command.execute(source, target);
 	}
 
 	private static void validateIsFileAndExists(File file) throws FileNotFoundException
@@ -23,14 +23,27 @@
 package com.flysystem.core.adapter.local;
 
 import com.flysystem.core.FileMetadata;
-import com.flysystem.core.MetadataWrapper;
+import com.flysystem.core.Visibility;
 import com.flysystem.core.exception.FileNotFoundException;
+import com.flysystem.core.exception.FlysystemGenericException;
 import com.flysystem.core.util.PathUtil;
+import com.flysystem.core.util.mime.MimeTypeDetector;
 import com.google.common.base.Converter;
+import com.google.common.base.Supplier;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Zeger Hoogeboom
@@ -38,11 +51,81 @@ import java.util.List;
 public class FileMetadataConverter extends Converter<File, FileMetadata>
 {
 
+	private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	private static final Set<PosixFilePermission> PUBLIC_PERMISSIONS = EnumSet.of(
+			PosixFilePermission.OWNER_READ,
+			PosixFilePermission.OWNER_WRITE,
+			PosixFilePermission.OWNER_EXECUTE);
+
 	@Override
 	protected FileMetadata doForward(File file) throws FileNotFoundException
 	{
-		String type = file.isFile() ? "file" : file.isDirectory() ? "directory" : null;
-		return new FileMetadata(file.getPath(), file.length(), null, PathUtil.guessMimeType(file.getPath()), file.lastModified(), type);   //FIXME: add visibility
+		try {
+			return fromAttributes(file.getPath(), readAttributes(file.toPath()));
+		} catch (NoSuchFileException e) {
+			return new FileMetadata(file.getPath());
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	/**
+	 * Read all attributes of a file with a single stat. POSIX attributes are read where supported,
+	 * so the visibility comes from the same call.
+	 */
+	public static BasicFileAttributes readAttributes(Path path) throws IOException
+	{
+		if (POSIX) {
+			return Files.readAttributes(path, PosixFileAttributes.class);
+		}
+		return Files.readAttributes(path, BasicFileAttributes.class);
+	}
+
+	public static FileMetadata fromAttributes(String path, BasicFileAttributes attributes)
+	{
+		return fromAttributes(path, attributes, PathUtil.getMimeTypeDetector());
+	}
+
+	/**
+	 * Build metadata from attributes that were already read. The mimetype of a file is only
+	 * detected once it is requested, directories have none.
+	 */
+	public static FileMetadata fromAttributes(final String path, BasicFileAttributes attributes, final MimeTypeDetector detector)
+	{
+		String type = attributes.isRegularFile() ? "file" : attributes.isDirectory() ? "directory" : null;
+		final long size = attributes.size();
+		final long timestamp = attributes.lastModifiedTime().toMillis();
+		FileMetadata metadata = new FileMetadata(path,
+				size,
+				visibility(path, attributes),
+				null,
+				timestamp,
+				type);
+		if (attributes.isRegularFile()) {
+			metadata.setMimetype(new Supplier<String>()
+			{
+				public String get()
+				{
+					return detector.detect(path, size, timestamp);
+				}
+			});
+		}
+		return metadata;
+	}
+
+	/**
+	 * A file is public when its owner can read, write and execute it.
+	 * Without POSIX attributes this falls back to access checks for the current user.
+	 */
+	public static Visibility visibility(String path, BasicFileAttributes attributes)
+	{
+		if (attributes instanceof PosixFileAttributes) {
+			Set<PosixFilePermission> permissions = ((PosixFileAttributes) attributes).permissions();
+			return permissions.containsAll(PUBLIC_PERMISSIONS) ? Visibility.PUBLIC : Visibility.PRIVATE;
+		}
+		File file = new File(path);
+		if (file.canExecute() && file.canRead() && file.canWrite()) return Visibility.PUBLIC;
+		return Visibility.PRIVATE;
 	}
 
 	@Override
@@ -62,10 +145,4 @@ public class FileMetadataConverter extends Converter<File, FileMetadata>
 		}
 		return convertedFiles;
 	}
-
-	public MetadataWrapper fromPath(String path, Object object)
-	{
-		FileMetadata metadata = this.convert(new File(path));
-		return new MetadataWrapper(metadata, object);
-	}
 }
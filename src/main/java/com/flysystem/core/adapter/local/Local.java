@@ -23,30 +23,59 @@
 package com.flysystem.core.adapter.local;
 
 import com.flysystem.core.Config;
+import com.flysystem.core.ContentIterator;
+import com.flysystem.core.ContentIterators;
 import com.flysystem.core.FileMetadata;
+import com.flysystem.core.Stream;
 import com.flysystem.core.Visibility;
 import com.flysystem.core.adapter.AbstractAdapter;
 import com.flysystem.core.exception.DirectoryNotFoundException;
+import com.flysystem.core.exception.FileExistsException;
 import com.flysystem.core.exception.FileNotFoundException;
 import com.flysystem.core.exception.FlysystemGenericException;
+import com.flysystem.core.metrics.EventRecorder;
+import com.flysystem.core.metrics.Events;
+import com.flysystem.core.util.PathUtil;
+import com.flysystem.core.util.mime.MimeTypeDetector;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * @author Zeger Hoogeboom
  */
-public class Local extends AbstractAdapter
+public class Local extends AbstractAdapter implements Stream
 {
+	public static final String COPY_MODE = "copy_mode";
+	public static final String MMAP_THRESHOLD = "mmap_threshold";
+	private static final long DEFAULT_MMAP_THRESHOLD = 1024 * 1024;
+	private static final int BUFFER_SIZE = 8192;
+	private static final String LAYER = "Local";
 	private static int SKIP_LINKS = 0001;
 	private static int DISALLOW_LINKS = 0002;
 	protected String pathSeparator = "/";
 	protected int writeFlags;
 	private int linkHandling;
+	private MimeTypeDetector mimeTypeDetector = PathUtil.getMimeTypeDetector();
 
 	public Local(String root, int writeFlags, int linkHandling)
 	{
@@ -70,6 +99,16 @@ public class Local extends AbstractAdapter
 		this(root, 2, 2);
 	}
 
+	public MimeTypeDetector getMimeTypeDetector()
+	{
+		return mimeTypeDetector;
+	}
+
+	public void setMimeTypeDetector(MimeTypeDetector mimeTypeDetector)
+	{
+		this.mimeTypeDetector = mimeTypeDetector;
+	}
+
 	/**
 	 * Ensure the root directory exists.
 	 *
@@ -95,18 +134,73 @@ public class Local extends AbstractAdapter
 	}
 
 	public String read(String path) throws FileNotFoundException
+	{
+		EventRecorder.Event event = Events.begin(LAYER, "read", path);
+		try {
+			File file = getExistingFile(path);
+			String contents = Files.toString(file, Charset.defaultCharset());
+			Events.end(event, contents);
+			return contents;
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	public InputStream readStream(String path) throws FileNotFoundException
 	{
 		try {
-			return Files.toString(getExistingFile(path), Charset.defaultCharset());
+			return FileUtils.openInputStream(getExistingFile(path));
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	/**
+	 * Map a file into memory, read-only. Close the result to release the mapping.
+	 */
+	public FileBuffer map(String path)
+	{
+		try (FileChannel channel = FileChannel.open(getExistingFile(path).toPath(), StandardOpenOption.READ)) {
+			return FileBuffer.map(channel);
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	/**
+	 * Read a file into a buffer. Files of at least the "mmap_threshold" config value in bytes
+	 * (1 MB by default) are memory-mapped, smaller ones are read through a channel into the heap.
+	 * Close the result to release a mapping.
+	 */
+	public FileBuffer readBuffer(String path, Config config)
+	{
+		long threshold = ((Number) config.get(MMAP_THRESHOLD, DEFAULT_MMAP_THRESHOLD)).longValue();
+		try (FileChannel channel = FileChannel.open(getExistingFile(path).toPath(), StandardOpenOption.READ)) {
+			if (channel.size() >= threshold) {
+				return FileBuffer.map(channel);
+			}
+			return FileBuffer.read(channel);
 		} catch (IOException e) {
 			throw new FlysystemGenericException(e);
 		}
 	}
 
+	public FileBuffer readBuffer(String path)
+	{
+		return readBuffer(path, new Config());
+	}
+
 	public List<FileMetadata> listContents(String directory, boolean recursive)
 	{
-		List<File> files = (List<File>) FileUtils.listFiles(getExistingFile(directory), null, recursive);
-		return FileMetadataConverter.doConvert(files, getPathPrefix());
+		EventRecorder.Event event = Events.begin(LAYER, "listContents", directory);
+		List<FileMetadata> contents = ContentIterators.toList(iterateContents(directory, recursive));
+		Events.end(event, 0, contents.size());
+		return contents;
+	}
+
+	public ContentIterator iterateContents(String directory, boolean recursive)
+	{
+		return new DirectoryIterator(this, Paths.get(applyPathPrefix(directory)), recursive);
 	}
 
 	public List<FileMetadata> listContents(String directory)
@@ -116,41 +210,42 @@ public class Local extends AbstractAdapter
 
 	public FileMetadata getMetadata(String path) throws FileNotFoundException
 	{
-		return new FileMetadataConverter().convert(getExistingFile(path));
+		String location = applyPathPrefix(path);
+		FileMetadata metadata = FileMetadataConverter.fromAttributes(location, getExistingAttributes(location), mimeTypeDetector);
+		metadata.setPath(removePathPrefix(location));
+		return metadata;
 	}
 
 	public Long getSize(String path)
 	{
-		return getExistingFile(path).length();
+		return getExistingAttributes(applyPathPrefix(path)).size();
 	}
 
 	public String getMimetype(String path)
 	{
-		return null;
+		String location = applyPathPrefix(path);
+		BasicFileAttributes attributes = getExistingAttributes(location);
+		if (! attributes.isRegularFile()) return null;
+		return mimeTypeDetector.detect(location, attributes.size(), attributes.lastModifiedTime().toMillis());
 	}
 
 	public Long getTimestamp(String path)
 	{
-		return getExistingFile(path).lastModified();
+		return getExistingAttributes(applyPathPrefix(path)).lastModifiedTime().toMillis();
 	}
 
 	public Visibility getVisibility(String path)
 	{
-		File file = new File(applyPathPrefix(path));
-		if (file.canExecute() && file.canRead() && file.canWrite()) return Visibility.PUBLIC;
-		return Visibility.PRIVATE;
+		String location = applyPathPrefix(path);
+		return FileMetadataConverter.visibility(location, getExistingAttributes(location));
 	}
 
+	/**
+	 * Write a new file. Throws FileExistsException when the file already exists.
+	 */
 	public boolean write(String path, String contents, Config config)
 	{
-		try {
-			File file = new File(applyPathPrefix(path));
-			FileUtils.write(file, contents);
-			setPermissions(file, config);
-			return true;
-		} catch (IOException e) {
-			throw new FlysystemGenericException(e);
-		}
+		return writeStream(path, toChannel(contents), config);
 	}
 
 	public boolean write(String path, String contents)
@@ -163,13 +258,81 @@ public class Local extends AbstractAdapter
 		return update(path, contents, new Config());
 	}
 
+	/**
+	 * Overwrite an existing file. Throws FileNotFoundException when the file does not exist.
+	 */
 	public boolean update(String path, String contents, Config config)
+	{
+		return updateStream(path, toChannel(contents), config);
+	}
+
+	public boolean writeStream(String path, InputStream contents, Config config)
+	{
+		return writeStream(path, Channels.newChannel(contents), config);
+	}
+
+	public boolean writeStream(String path, InputStream contents)
+	{
+		return writeStream(path, contents, new Config());
+	}
+
+	public boolean writeStream(String path, ReadableByteChannel source, Config config)
+	{
+		EventRecorder.Event event = Events.begin(LAYER, "write", path);
+		File file = new File(applyPathPrefix(path));
+		ensureDirectory(file);
+		long written = copyToFile(source, file, true);
+		setPermissions(file, config);
+		Events.end(event, written, 0);
+		return true;
+	}
+
+	public boolean writeStream(String path, ReadableByteChannel source)
+	{
+		return writeStream(path, source, new Config());
+	}
+
+	public boolean updateStream(String path, InputStream contents, Config config)
+	{
+		return updateStream(path, Channels.newChannel(contents), config);
+	}
+
+	public boolean updateStream(String path, InputStream contents)
+	{
+		return updateStream(path, contents, new Config());
+	}
+
+	public boolean updateStream(String path, ReadableByteChannel source, Config config)
+	{
+		EventRecorder.Event event = Events.begin(LAYER, "update", path);
+		File file = new File(applyPathPrefix(path));
+		setPermissions(file, config);
+		long written = isLinked(file) ? replaceFile(source, file) : copyToFile(source, file, false);
+		Events.end(event, written, 0);
+		return true;
+	}
+
+	public boolean updateStream(String path, ReadableByteChannel source)
+	{
+		return updateStream(path, source, new Config());
+	}
+
+	public ReadableByteChannel readChannel(String path)
 	{
 		try {
-			File existingFile = getExistingFile(path);
-			setPermissions(existingFile, config);
-			FileUtils.write(existingFile, contents);
-			return true;
+			return FileChannel.open(getExistingFile(path).toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	public long readStream(String path, WritableByteChannel target)
+	{
+		EventRecorder.Event event = Events.begin(LAYER, "readStream", path);
+		try (FileChannel channel = FileChannel.open(getExistingFile(path).toPath(), StandardOpenOption.READ)) {
+			long transferred = FileCommands.transfer(channel, target);
+			Events.end(event, transferred, 0);
+			return transferred;
 		} catch (IOException e) {
 			throw new FlysystemGenericException(e);
 		}
@@ -177,32 +340,50 @@ public class Local extends AbstractAdapter
 
 	public boolean rename(String from, String to)
 	{
+		EventRecorder.Event event = Events.begin(LAYER, "rename", from);
 		File source = new File(applyPathPrefix(from));
 		File target = new File(applyPathPrefix(to));
 		FileCommands.manipulate(this, source, target, new FileCommands.MoveFileCommand());
+		Events.end(event, 0, 1);
 		return true;
 	}
 
 	public boolean copy(String path, String newpath)
 	{
+		return copy(path, newpath, new Config());
+	}
+
+	/**
+	 * Copy a file. The "copy_mode" config key selects a {@link CopyMode}, defaulting to a regular copy.
+	 */
+	public boolean copy(String path, String newpath, Config config)
+	{
+		EventRecorder.Event event = Events.begin(LAYER, "copy", path);
 		File source = new File(applyPathPrefix(path));
 		File destination = new File(applyPathPrefix(newpath));
-		FileCommands.manipulate(this, source, destination, new FileCommands.CopyFileCommand());
+		CopyMode mode = CopyMode.of(config.get(COPY_MODE));
+		long copied = FileCommands.manipulate(this, source, destination, FileCommands.copyCommand(mode));
+		Events.end(event, copied, 1);
 		return true;
 	}
 
 	public boolean delete(String path)
 	{
+		EventRecorder.Event event = Events.begin(LAYER, "delete", path);
 		File file = new File(applyPathPrefix(path));
-		return file.isFile() && file.delete();
+		boolean deleted = file.isFile() && file.delete();
+		Events.end(event, 0, deleted ? 1 : 0);
+		return deleted;
 	}
 
 	public boolean deleteDir(String dirname)
 	{
+		EventRecorder.Event event = Events.begin(LAYER, "deleteDir", dirname);
 		File directory = new File(applyPathPrefix(dirname));
 		validateIsDirectoryAndExists(directory);
 		try {
 			FileUtils.deleteDirectory(directory);
+			Events.end(event, 0, 0);
 		} catch (IOException e) {
 			throw new FlysystemGenericException(e);
 		}
@@ -221,6 +402,82 @@ public class Local extends AbstractAdapter
 		return createDir(dirname, new Config());
 	}
 
+	/**
+	 * Copy a channel into a file. A new file must not exist yet, an existing one must exist and is truncated first.
+	 * Opening the file doubles as the existence check, before anything is read from the source.
+	 * File sources are handed to the kernel through transferFrom, anything else goes through a single buffer
+	 * reused for the whole transfer. The source channel is left open.
+	 *
+	 * @return The number of bytes written.
+	 */
+	private long copyToFile(ReadableByteChannel source, File file, boolean create)
+	{
+		OpenOption mode = create ? StandardOpenOption.CREATE_NEW : StandardOpenOption.TRUNCATE_EXISTING;
+		try (FileChannel target = FileChannel.open(file.toPath(), mode, StandardOpenOption.WRITE)) {
+			if (source instanceof FileChannel) {
+				return FileCommands.transfer((FileChannel) source, target);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long written = 0;
+			while (source.read(buffer) != -1) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					written += target.write(buffer);
+				}
+				buffer.clear();
+			}
+			return written;
+		} catch (FileAlreadyExistsException e) {
+			throw new FileExistsException(file.getPath());
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(file.getPath());
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	/**
+	 * Whether other hard links share the file, as after a copy in {@link CopyMode#HARDLINK} mode.
+	 * Only known where the "unix" attribute view is supported.
+	 */
+	private static boolean isLinked(File file)
+	{
+		try {
+			Object links = java.nio.file.Files.getAttribute(file.toPath(), "unix:nlink");
+			return links instanceof Integer && (Integer) links > 1;
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return false;
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(file.getPath());
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	/**
+	 * Write a new file next to an existing one and move it in place, so other hard links keep the old contents.
+	 * The new file takes over the permissions of the old one.
+	 */
+	private long replaceFile(ReadableByteChannel source, File file)
+	{
+		File temp = new File(file.getParentFile(), "." + file.getName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			long written = copyToFile(source, temp, true);
+			java.nio.file.Files.setPosixFilePermissions(temp.toPath(), java.nio.file.Files.getPosixFilePermissions(file.toPath()));
+			java.nio.file.Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return written;
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private static ReadableByteChannel toChannel(String contents)
+	{
+		return Channels.newChannel(new ByteArrayInputStream(contents.getBytes(Charset.defaultCharset())));
+	}
+
 	private void setPermissions(File file, Config config)
 	{
 		Visibility visibility = (Visibility) config.get("visibility", Visibility.PUBLIC);
@@ -259,6 +516,20 @@ public class Local extends AbstractAdapter
 		if (!file.exists() || !file.isDirectory()) throw new DirectoryNotFoundException(file.getPath());
 	}
 
+	/**
+	 * Read the attributes of an existing file, doubling as the existence check.
+	 */
+	private BasicFileAttributes getExistingAttributes(String location)
+	{
+		try {
+			return FileMetadataConverter.readAttributes(Paths.get(location));
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(location);
+		} catch (IOException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
 	private File getExistingFile(String path)
 	{
 		File file = new File(applyPathPrefix(path));
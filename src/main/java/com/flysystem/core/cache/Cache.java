@@ -44,8 +44,10 @@ package com.flysystem.core.cache;/*
 
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.Read;
+import com.google.common.cache.CacheStats;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Zeger Hoogeboom
@@ -71,6 +73,12 @@ public interface Cache extends Read
 	 */
 	void storeContents(String directory, List<FileMetadata> contents, boolean recursive);
 
+	/**
+	 * A counter that goes up whenever entries are evicted or expire. A listing that is cached entry by entry
+	 * is only complete when the counter did not change in between.
+	 */
+	long generation();
+
 	/**
 	 * Flush the cache.
 	 */
@@ -138,10 +146,30 @@ public interface Cache extends Read
 	 */
 	void updateObject(String path, Object object);
 
+	/**
+	 * Record that a file was written without caching its contents. Whatever was cached for it is dropped,
+	 * and only its existence is known until its metadata is read again.
+	 *
+	 * @param path object path
+	 */
+	void storeWritten(String path);
+
 	/**
 	 * Store object hit miss.
 	 *
 	 * @param path
 	 */
 	void storeMiss(String path);
+
+	/**
+	 * Whether a recent lookup found that the path does not exist.
+	 *
+	 * @param path
+	 */
+	boolean isMissing(String path);
+
+	/**
+	 * Hit, miss, eviction and load statistics of the caches behind this cache, by name.
+	 */
+	Map<String, CacheStats> stats();
 }
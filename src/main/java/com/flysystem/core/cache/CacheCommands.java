@@ -25,6 +25,29 @@ package com.flysystem.core.cache;
 import com.flysystem.core.Adapter;
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.Visibility;
+import com.flysystem.core.cache.storage.AbstractCache;
+import com.flysystem.core.exception.FileNotFoundException;
+import com.flysystem.core.exception.FlysystemGenericException;
+import com.google.common.cache.AbstractCache.SimpleStatsCounter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Zeger Hoogeboom
@@ -34,6 +57,21 @@ public class CacheCommands
 
 	private final Adapter adapter;
 	private Cache cache;
+	private final ConcurrentMap<List<Object>, FutureTask<?>> inFlight = new ConcurrentHashMap<>();
+	private volatile boolean coalescing = true;
+
+	private static final long DEFAULT_MAX_AGES = 100000;
+
+	private volatile Executor refresher;
+	private volatile long refreshAfter;
+	private volatile long expireAfter;
+	/**
+	 * Per path, when each command last read it from the adapter, or first served it when it got into the cache
+	 * some other way. Bounded like the cache itself, and only created once refreshing is enabled.
+	 */
+	private volatile com.google.common.cache.Cache<String, ConcurrentMap<Object, Long>> loaded;
+	private final ConcurrentMap<String, SimpleStatsCounter> counters = new ConcurrentHashMap<>();
+	private final Set<List<Object>> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<List<Object>, Boolean>());
 
 	public CacheCommands(CachedAdapter cachedAdapter)
 	{
@@ -41,12 +79,125 @@ public class CacheCommands
 		this.adapter = cachedAdapter.getAdapter();
 	}
 
+	public boolean isCoalescing()
+	{
+		return coalescing;
+	}
+
+	/**
+	 * Whether concurrent cache misses for the same path and command share one call to the adapter. On by default.
+	 */
+	public void setCoalescing(boolean coalescing)
+	{
+		this.coalescing = coalescing;
+	}
+
+	public long getRefreshAfter()
+	{
+		return refreshAfter;
+	}
+
+	/**
+	 * Milliseconds after which a cached entry is stale. A stale entry is still served right away,
+	 * while a background thread reads it again from the adapter. 0, the default, never refreshes entries.
+	 */
+	public void setRefreshAfter(long refreshAfter)
+	{
+		if (refreshAfter > 0) ensureLoaded();
+		this.refreshAfter = refreshAfter;
+	}
+
+	private synchronized void ensureLoaded()
+	{
+		if (loaded != null) return;
+		long maxAges = cache instanceof AbstractCache ? ((AbstractCache) cache).getMaxEntries() : DEFAULT_MAX_AGES;
+		loaded = CacheBuilder.newBuilder().maximumSize(maxAges).build();
+	}
+
+	public long getExpireAfter()
+	{
+		return expireAfter;
+	}
+
+	/**
+	 * Milliseconds after which a cached entry is no longer served, but read from the adapter first.
+	 * Only applies together with {@link #setRefreshAfter(long)}: an entry that is used between the two
+	 * is refreshed ahead of time, so only entries that went unused for a while are read synchronously.
+	 * 0, the default, serves stale entries however old they are.
+	 */
+	public void setExpireAfter(long expireAfter)
+	{
+		this.expireAfter = expireAfter;
+	}
+
+	/**
+	 * The executor to run background refreshes on. Defaults to two daemon threads shared by all caches,
+	 * started by the first refresh.
+	 */
+	public void setRefreshExecutor(Executor refresher)
+	{
+		this.refresher = refresher;
+	}
+
+	/**
+	 * Start the age of the cached entries of a path over, as the cache was just updated by a write.
+	 */
+	public void resetAge(String path)
+	{
+		com.google.common.cache.Cache<String, ConcurrentMap<Object, Long>> ages = loaded;
+		if (ages != null) ages.invalidate(path);
+	}
+
+	/**
+	 * Statistics per command, by its simple class name. Hits are served from the cache, misses are not,
+	 * and loads are the calls to the adapter. Concurrent misses that share a load count as one load.
+	 */
+	public Map<String, CacheStats> stats()
+	{
+		Map<String, CacheStats> stats = new TreeMap<>();
+		for (Map.Entry<String, SimpleStatsCounter> counter : counters.entrySet()) {
+			stats.put(counter.getKey(), counter.getValue().snapshot());
+		}
+		return stats;
+	}
+
+	private SimpleStatsCounter counter(GetFromCacheCommand<?> command)
+	{
+		String name = command.getClass().getSimpleName();
+		SimpleStatsCounter counter = counters.get(name);
+		if (counter == null) {
+			SimpleStatsCounter created = new SimpleStatsCounter();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null) counter = created;
+		}
+		return counter;
+	}
+
 	public interface GetFromCacheCommand<T>
 	{
 		T fromCache(String path);
 		T fromFilesystem(String path);
 	}
 
+	/**
+	 * A command that fetches a single metadata field. The result is cached as a field update,
+	 * so it is merged into what the cache already knows about the path.
+	 */
+	abstract class GetFieldCommand<T> implements GetFromCacheCommand<T>
+	{
+		private final String field;
+
+		GetFieldCommand(String field)
+		{
+			this.field = field;
+		}
+
+		Map<String, T> toCacheObject(T fetched)
+		{
+			return Collections.singletonMap(field, fetched);
+		}
+	}
+
 	class GetMetadataCommand implements GetFromCacheCommand<FileMetadata> {
 		public FileMetadata fromCache(String path) {
 			return cache.getMetadata(path);
@@ -56,8 +207,11 @@ public class CacheCommands
 		}
 	}
 
-	class GetTimestampCommand implements GetFromCacheCommand<Long>
+	class GetTimestampCommand extends GetFieldCommand<Long>
 	{
+		GetTimestampCommand() {
+			super("timestamp");
+		}
 		public Long fromCache(String path) {
 			return cache.getTimestamp(path);
 		}
@@ -66,8 +220,11 @@ public class CacheCommands
 		}
 	}
 
-	class GetSizeCommand implements GetFromCacheCommand<Long>
+	class GetSizeCommand extends GetFieldCommand<Long>
 	{
+		GetSizeCommand() {
+			super("size");
+		}
 		public Long fromCache(String path) {
 			return cache.getSize(path);
 		}
@@ -76,8 +233,11 @@ public class CacheCommands
 		}
 	}
 
-	class GetVisibilityCommand implements GetFromCacheCommand<Visibility>
+	class GetVisibilityCommand extends GetFieldCommand<Visibility>
 	{
+		GetVisibilityCommand() {
+			super("visibility");
+		}
 		public Visibility fromCache(String path) {
 			return cache.getVisibility(path);
 		}
@@ -86,8 +246,11 @@ public class CacheCommands
 		}
 	}
 
-	class GetMimetypeCommand implements GetFromCacheCommand<String>
+	class GetMimetypeCommand extends GetFieldCommand<String>
 	{
+		GetMimetypeCommand() {
+			super("mimetype");
+		}
 		public String fromCache(String path) {
 			return cache.getMimetype(path);
 		}
@@ -96,8 +259,14 @@ public class CacheCommands
 		}
 	}
 
-	class ReadCommand implements GetFromCacheCommand<String>
+	/**
+	 * Contents read from the adapter are cached as a field, so they never replace metadata that is already cached.
+	 */
+	class ReadCommand extends GetFieldCommand<String>
 	{
+		ReadCommand() {
+			super("contents");
+		}
 		public String fromCache(String path) {
 			return cache.read(path);
 		}
@@ -109,21 +278,167 @@ public class CacheCommands
 	class HasCommand implements GetFromCacheCommand<Boolean>
 	{
 		public Boolean fromCache(String path) {
-			return cache.has(path);
+			if (cache.has(path)) return true;
+			return cache.isMissing(path) ? false : null;
 		}
 		public Boolean fromFilesystem(String path) {
 			return adapter.has(path);
 		}
 	}
 
-	public <T> T get(String path, GetFromCacheCommand<T> command)
+	public <T> T get(final String path, final GetFromCacheCommand<T> command)
 	{
+		SimpleStatsCounter counter = counter(command);
 		T cached = command.fromCache(path);
-		if (cached != null) return cached;
+		if (cached != null && (refreshAfter <= 0 || isServable(path, command))) {
+			counter.recordHits(1);
+			return cached;
+		}
+		counter.recordMisses(1);
+
+		return coalesce(path, command.getClass(), new Callable<T>()
+		{
+			public T call()
+			{
+				return fetch(path, command);
+			}
+		});
+	}
+
+	/**
+	 * Run a fetch for a path. While coalescing, threads that run the same kind of fetch for the path at the same
+	 * time wait for the first one and share its result, or its exception.
+	 *
+	 * @param kind Identifies the fetch, together with the path.
+	 */
+	public <T> T coalesce(String path, Object kind, Callable<T> fetch)
+	{
+		FutureTask<T> task = new FutureTask<>(fetch);
+		if (! coalescing) {
+			task.run();
+			return await(task);
+		}
+		List<Object> key = Arrays.asList(kind, path);
+		@SuppressWarnings("unchecked")
+		FutureTask<T> running = (FutureTask<T>) inFlight.putIfAbsent(key, task);
+		if (running != null) return await(running);
+		try {
+			task.run();
+		} finally {
+			inFlight.remove(key, task);
+		}
+		return await(task);
+	}
+
+	private static <T> T await(FutureTask<T> task)
+	{
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FlysystemGenericException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new FlysystemGenericException(cause);
+		}
+	}
 
-		T fetched = command.fromFilesystem(path);
+	/**
+	 * Whether a cached entry can be served, refreshing it in the background once it is stale.
+	 */
+	private <T> boolean isServable(String path, GetFromCacheCommand<T> command)
+	{
+		ConcurrentMap<Object, Long> ages = ages(path);
+		Long loadedAt = ages.get(command.getClass());
+		long now = now();
+		if (loadedAt == null) {
+			ages.putIfAbsent(command.getClass(), now);
+			return true;
+		}
+		long age = now - loadedAt;
+		if (expireAfter > 0 && age >= expireAfter) return false;
+		if (age >= refreshAfter) refresh(Arrays.<Object>asList(command.getClass(), path), path, command);
+		return true;
+	}
+
+	/**
+	 * When each command last loaded a path. Only called while refreshing is enabled.
+	 */
+	private ConcurrentMap<Object, Long> ages(String path)
+	{
+		ConcurrentMap<Object, Long> ages = loaded.getIfPresent(path);
+		if (ages == null) {
+			ConcurrentMap<Object, Long> created = new ConcurrentHashMap<>(4);
+			ages = loaded.asMap().putIfAbsent(path, created);
+			if (ages == null) ages = created;
+		}
+		return ages;
+	}
+
+	private <T> void refresh(final List<Object> key, final String path, final GetFromCacheCommand<T> command)
+	{
+		if (! refreshing.add(key)) return;
+		Executor executor = refresher;
+		try {
+			(executor != null ? executor : DefaultRefresher.EXECUTOR).execute(new Runnable()
+			{
+				public void run()
+				{
+					try {
+						coalesce(path, command.getClass(), new Callable<T>()
+						{
+							public T call()
+							{
+								return fetch(path, command);
+							}
+						});
+					} catch (FileNotFoundException e) {
+						cache.storeMiss(path);
+					} catch (RuntimeException e) {
+						// keep serving the cached entry, and only try again once it is stale again
+						ages(path).put(command.getClass(), now());
+					} finally {
+						refreshing.remove(key);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshing.remove(key);
+		}
+	}
+
+	/**
+	 * Holds the refresh threads shared by all caches, so they are only created once something is refreshed.
+	 */
+	private static final class DefaultRefresher
+	{
+		static final Executor EXECUTOR = Executors.newFixedThreadPool(2,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("flysystem-cache-refresh-%d").build());
+	}
+
+	private static long now()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	private <T> T fetch(String path, GetFromCacheCommand<T> command)
+	{
+		SimpleStatsCounter counter = counter(command);
+		long start = System.nanoTime();
+		T fetched;
+		try {
+			fetched = command.fromFilesystem(path);
+		} catch (RuntimeException e) {
+			counter.recordLoadException(System.nanoTime() - start);
+			throw e;
+		}
+		counter.recordLoadSuccess(System.nanoTime() - start);
+		if (refreshAfter > 0) ages(path).put(command.getClass(), now());
 		if (fetched != null) {
-			cache.updateObject(path, fetched, true);
+			Object value = command instanceof GetFieldCommand ? ((GetFieldCommand<T>) command).toCacheObject(fetched) : fetched;
+			cache.updateObject(path, value, true);
 		} else {
 			cache.storeMiss(path);
 		}
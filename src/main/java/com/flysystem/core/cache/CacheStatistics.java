@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.cache;
+
+import com.flysystem.core.exception.FlysystemGenericException;
+import com.google.common.base.Function;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Maps;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the statistics of a cached adapter over JMX, under com.flysystem:type=Cache,name=&lt;name&gt;.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class CacheStatistics implements CacheStatisticsMXBean
+{
+	private final CachedAdapter adapter;
+	private ObjectName objectName;
+
+	public CacheStatistics(CachedAdapter adapter)
+	{
+		this.adapter = adapter;
+	}
+
+	/**
+	 * Register with the platform MBean server.
+	 */
+	public ObjectName register(String name)
+	{
+		try {
+			ObjectName objectName = new ObjectName("com.flysystem:type=Cache,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+			return objectName;
+		} catch (JMException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	public void unregister()
+	{
+		if (objectName == null) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+			objectName = null;
+		} catch (JMException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	public Map<String, Long> getHitCounts()
+	{
+		return collect(new Function<CacheStats, Long>()
+		{
+			public Long apply(CacheStats stats)
+			{
+				return stats.hitCount();
+			}
+		});
+	}
+
+	public Map<String, Long> getMissCounts()
+	{
+		return collect(new Function<CacheStats, Long>()
+		{
+			public Long apply(CacheStats stats)
+			{
+				return stats.missCount();
+			}
+		});
+	}
+
+	public Map<String, Double> getHitRates()
+	{
+		return collect(new Function<CacheStats, Double>()
+		{
+			public Double apply(CacheStats stats)
+			{
+				return stats.hitRate();
+			}
+		});
+	}
+
+	public Map<String, Long> getEvictionCounts()
+	{
+		return collect(new Function<CacheStats, Long>()
+		{
+			public Long apply(CacheStats stats)
+			{
+				return stats.evictionCount();
+			}
+		});
+	}
+
+	public Map<String, Long> getLoadCounts()
+	{
+		return collect(new Function<CacheStats, Long>()
+		{
+			public Long apply(CacheStats stats)
+			{
+				return stats.loadCount();
+			}
+		});
+	}
+
+	public Map<String, Long> getLoadExceptionCounts()
+	{
+		return collect(new Function<CacheStats, Long>()
+		{
+			public Long apply(CacheStats stats)
+			{
+				return stats.loadExceptionCount();
+			}
+		});
+	}
+
+	public Map<String, Double> getAverageLoadPenalties()
+	{
+		return collect(new Function<CacheStats, Double>()
+		{
+			public Double apply(CacheStats stats)
+			{
+				return stats.averageLoadPenalty();
+			}
+		});
+	}
+
+	private <T> Map<String, T> collect(Function<CacheStats, T> value)
+	{
+		return new LinkedHashMap<>(Maps.transformValues(adapter.stats(), value));
+	}
+}
@@ -44,13 +44,21 @@ package com.flysystem.core.cache;/*
 
 import com.flysystem.core.Adapter;
 import com.flysystem.core.Config;
+import com.flysystem.core.ContentIterator;
+import com.flysystem.core.ContentIterators;
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.Visibility;
 import com.flysystem.core.exception.FileExistsException;
 import com.flysystem.core.exception.FileNotFoundException;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.AbstractIterator;
 
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * @author Zeger Hoogeboom
@@ -61,6 +69,7 @@ public class CachedAdapter implements Adapter
 	private final Adapter adapter;
 	private final Cache cache;
 	private CacheCommands cacheCommands;
+	private ContentCache contentCache;
 
 	public CachedAdapter(Adapter adapter, Cache cache)
 	{
@@ -76,6 +85,15 @@ public class CachedAdapter implements Adapter
 		this.cacheCommands = cacheCommands;
 	}
 
+	/**
+	 * Keep file contents in a separate content cache instead of the metadata cache.
+	 */
+	public CachedAdapter(Adapter adapter, Cache cache, ContentCache contentCache)
+	{
+		this(adapter, cache);
+		this.contentCache = contentCache;
+	}
+
 	public Adapter getAdapter()
 	{
 		return adapter;
@@ -86,10 +104,31 @@ public class CachedAdapter implements Adapter
 		return cache;
 	}
 
+	public ContentCache getContentCache()
+	{
+		return contentCache;
+	}
+
+	public CacheCommands getCacheCommands()
+	{
+		return cacheCommands;
+	}
+
+	/**
+	 * Statistics of the cache by name, followed by those of each command by class name.
+	 */
+	public Map<String, CacheStats> stats()
+	{
+		Map<String, CacheStats> stats = new LinkedHashMap<>(cache.stats());
+		stats.putAll(cacheCommands.stats());
+		return stats;
+	}
+
 	public List<FileMetadata> listContents(String directory, boolean recursive)
 	{
 		if (cache.isComplete(directory, recursive)) {
-			return cache.listContents(directory, recursive);
+			List<FileMetadata> cached = cache.listContents(directory, recursive);
+			if (cached != null) return cached;
 		}
 		List<FileMetadata> result = adapter.listContents(directory, recursive);
 		if (result != null) {
@@ -98,14 +137,48 @@ public class CachedAdapter implements Adapter
 		return result;
 	}
 
+	/**
+	 * Serves complete listings from the cache. Otherwise entries are cached as they are read from the adapter,
+	 * and the directory is only marked complete once the iteration reaches the end.
+	 */
+	public ContentIterator iterateContents(final String directory, final boolean recursive)
+	{
+		if (cache.isComplete(directory, recursive)) {
+			List<FileMetadata> cached = cache.listContents(directory, recursive);
+			if (cached != null) return ContentIterators.of(cached);
+		}
+		return new CachingContentIterator(adapter.iterateContents(directory, recursive), directory, recursive);
+	}
+
 	public boolean has(String path)
 	{
 		return cacheCommands.get(path, cacheCommands.new HasCommand());
 	}
 
-	public String read(String path) throws FileNotFoundException
+	public String read(final String path) throws FileNotFoundException
 	{
-		return cacheCommands.get(path, cacheCommands.new ReadCommand());
+		if (contentCache == null) {
+			return cacheCommands.get(path, cacheCommands.new ReadCommand());
+		}
+		String contents = contentCache.get(path);
+		if (contents != null) return contents;
+		return cacheCommands.coalesce(path, ContentCache.class, new Callable<String>()
+		{
+			public String call()
+			{
+				String contents = adapter.read(path);
+				if (contents != null) contentCache.put(path, contents);
+				return contents;
+			}
+		});
+	}
+
+	/**
+	 * Streams are never served from the cache, so large files do not end up on the heap.
+	 */
+	public InputStream readStream(String path) throws FileNotFoundException
+	{
+		return adapter.readStream(path);
 	}
 
 	public FileMetadata getMetadata(String path)
@@ -137,7 +210,7 @@ public class CachedAdapter implements Adapter
 	{
 		boolean result = adapter.write(path, contents, config);
 		if (result) {
-			cache.updateObject(path, contents, true);
+			storeContents(path, contents);
 		}
 		return result;
 	}
@@ -156,33 +229,77 @@ public class CachedAdapter implements Adapter
 	{
 		boolean result = adapter.update(path, contents, config);
 		if (result) {
-			cache.updateObject(path, contents, true);
+			storeContents(path, contents);
+		}
+		return result;
+	}
+
+	public boolean writeStream(String path, InputStream contents, Config config)
+	{
+		boolean result = adapter.writeStream(path, contents, config);
+		if (result) {
+			invalidateContents(path);
+			cache.storeWritten(path);
+			cacheCommands.resetAge(path);
 		}
 		return result;
 	}
 
+	public boolean writeStream(String path, InputStream contents)
+	{
+		return writeStream(path, contents, new Config());
+	}
+
+	public boolean updateStream(String path, InputStream contents, Config config)
+	{
+		boolean result = adapter.updateStream(path, contents, config);
+		if (result) {
+			invalidateContents(path);
+			cache.storeWritten(path);
+			cacheCommands.resetAge(path);
+		}
+		return result;
+	}
+
+	public boolean updateStream(String path, InputStream contents)
+	{
+		return updateStream(path, contents, new Config());
+	}
+
 	public boolean rename(String from, String to) throws FileExistsException, FileNotFoundException
 	{
 		boolean result = adapter.rename(from, to);
 		if (result) {
+			invalidateTree(from);
+			invalidateTree(to);
 			cache.rename(from, to);
+			cacheCommands.resetAge(from);
+			cacheCommands.resetAge(to);
 		}
 		return result;
 	}
 
-	public boolean copy(String path, String newpath)
+	public boolean copy(String path, String newpath, Config config)
 	{
-		boolean result = adapter.copy(path, newpath);
+		boolean result = adapter.copy(path, newpath, config);
 		if (result) {
+			invalidateContents(newpath);
 			cache.copy(path, newpath);
+			cacheCommands.resetAge(newpath);
 		}
 		return result;
 	}
 
+	public boolean copy(String path, String newpath)
+	{
+		return copy(path, newpath, new Config());
+	}
+
 	public boolean delete(String path)
 	{
 		boolean result = adapter.delete(path);
 		if (result) {
+			invalidateContents(path);
 			cache.delete(path);
 		}
 		return result;
@@ -192,6 +309,7 @@ public class CachedAdapter implements Adapter
 	{
 		boolean result = adapter.deleteDir(dirname);
 		if (result) {
+			if (contentCache != null) contentCache.invalidateDirectory(dirname);
 			cache.deleteDir(dirname);
 		}
 		return result;
@@ -206,6 +324,7 @@ public class CachedAdapter implements Adapter
 					put("path", dirname);
 					put("type", "dir");
 				}}, true);
+			cacheCommands.resetAge(dirname);
 		}
 		return result;
 	}
@@ -215,13 +334,76 @@ public class CachedAdapter implements Adapter
 		return createDir(dirname, new Config());
 	}
 
+	/**
+	 * Cache written contents, in the content cache when there is one. The metadata cache then only learns
+	 * that the file was rewritten.
+	 */
+	private void storeContents(String path, String contents)
+	{
+		cacheCommands.resetAge(path);
+		if (contentCache == null) {
+			cache.updateObject(path, contents, true);
+			return;
+		}
+		contentCache.put(path, contents);
+		cache.storeWritten(path);
+	}
+
+	private void invalidateContents(String path)
+	{
+		if (contentCache != null) contentCache.invalidate(path);
+	}
+
+	/**
+	 * A renamed path can be a directory, so contents below it are dropped as well.
+	 */
+	private void invalidateTree(String path)
+	{
+		if (contentCache == null) return;
+		contentCache.invalidate(path);
+		contentCache.invalidateDirectory(path);
+	}
+
 	public boolean setVisibility(final String path, Visibility visibility)
 	{
 		boolean result = adapter.setVisibility(path, visibility);
 		if (result) {
 			cache.updateObject(path, visibility, true);
+			cacheCommands.resetAge(path);
 		}
 		return result;
 	}
 
+	private class CachingContentIterator extends AbstractIterator<FileMetadata> implements ContentIterator
+	{
+		private final ContentIterator source;
+		private final String directory;
+		private final boolean recursive;
+		private final long generation = cache.generation();
+
+		CachingContentIterator(ContentIterator source, String directory, boolean recursive)
+		{
+			this.source = source;
+			this.directory = directory;
+			this.recursive = recursive;
+		}
+
+		@Override
+		protected FileMetadata computeNext()
+		{
+			if (! source.hasNext()) {
+				if (cache.generation() == generation) cache.setComplete(directory, recursive);
+				cache.autosave();
+				return endOfData();
+			}
+			FileMetadata metadata = source.next();
+			cache.updateObject(metadata.getPath(), metadata);
+			return metadata;
+		}
+
+		public void close()
+		{
+			source.close();
+		}
+	}
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.cache;
+
+/**
+ * A cache tier for file contents, kept apart from the metadata {@link Cache} so it can have
+ * its own storage and eviction policy.
+ *
+ * @author Zeger Hoogeboom
+ */
+public interface ContentCache
+{
+	/**
+	 * Get the cached contents of a file.
+	 *
+	 * @return the contents, or null when they are not cached
+	 */
+	String get(String path);
+
+	/**
+	 * Cache the contents of a file. Implementations may decline to store them, for example when they are too large.
+	 */
+	void put(String path, String contents);
+
+	/**
+	 * Remove the contents of a file.
+	 */
+	void invalidate(String path);
+
+	/**
+	 * Remove the contents of all files in a directory, recursively.
+	 */
+	void invalidateDirectory(String dirname);
+
+	/**
+	 * Remove all contents.
+	 */
+	void invalidateAll();
+}
@@ -22,56 +22,353 @@
 
 package com.flysystem.core.cache.storage;
 
+import com.flysystem.core.Config;
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.MetadataWrapper;
 import com.flysystem.core.Visibility;
-import com.flysystem.core.adapter.local.FileMetadataConverter;
 import com.flysystem.core.cache.Cache;
 import com.flysystem.core.exception.FileNotFoundException;
 import com.google.common.cache.CacheBuilder;
-
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Zeger Hoogeboom
  */
-public abstract class AbstractCache implements Cache
+public abstract class AbstractCache implements Cache, Closeable
 {
 
+	/**
+	 * Maximum number of paths to keep metadata for. Defaults to 100,000.
+	 */
+	public static final String MAX_ENTRIES = "max_entries";
+	/**
+	 * Maximum total length, in characters, of cached file contents. Defaults to 8,388,608.
+	 */
+	public static final String MAX_CONTENT_WEIGHT = "max_content_weight";
+	/**
+	 * Milliseconds after which an entry expires once written. Entries do not expire by default.
+	 */
+	public static final String EXPIRE_AFTER_WRITE = "expire_after_write";
+	/**
+	 * Milliseconds after which an entry expires once last accessed. Entries do not expire by default.
+	 */
+	public static final String EXPIRE_AFTER_ACCESS = "expire_after_access";
+
+	/**
+	 * Maximum number of paths to remember as missing. Defaults to 10,000.
+	 */
+	public static final String MAX_MISSES = "max_misses";
+	/**
+	 * Milliseconds after which a path that was missing is looked up again. Defaults to 10,000.
+	 */
+	public static final String EXPIRE_MISS_AFTER_WRITE = "expire_miss_after_write";
+
+	/**
+	 * Milliseconds to gather changes before an autosave runs in the background. Defaults to 1,000,
+	 * 0 saves synchronously on every change.
+	 */
+	public static final String AUTOSAVE_DELAY = "autosave_delay";
+	/**
+	 * Number of changes after which an autosave runs right away instead of waiting for the delay. Defaults to 1,000.
+	 */
+	public static final String AUTOSAVE_MAX_PENDING = "autosave_max_pending";
+
+	private static final long DEFAULT_MAX_ENTRIES = 100000;
+	private static final long DEFAULT_MAX_CONTENT_WEIGHT = 8 * 1024 * 1024;
+	private static final long DEFAULT_MAX_MISSES = 10000;
+	private static final long DEFAULT_EXPIRE_MISS_AFTER_WRITE = 10000;
+	private static final long DEFAULT_AUTOSAVE_DELAY = 1000;
+	private static final int DEFAULT_AUTOSAVE_MAX_PENDING = 1000;
+
 	protected boolean autosave = true;
+	private long autosaveDelay = DEFAULT_AUTOSAVE_DELAY;
+	private int autosaveMaxPending = DEFAULT_AUTOSAVE_MAX_PENDING;
+	private long maxEntries = DEFAULT_MAX_ENTRIES;
+	private final AtomicBoolean dirty = new AtomicBoolean();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicLong generation = new AtomicLong();
+	private final Object saveLock = new Object();
 
 	private com.google.common.cache.Cache<String, MetadataWrapper> cache;
+	private com.google.common.cache.Cache<String, String> contents;
 	private com.google.common.cache.Cache<String, Object> complete;
-	private FileMetadataConverter converter;
+	private final com.google.common.cache.Cache<String, Boolean> misses;
+	private final PathTrie index = new PathTrie();
 	private static final String recursive = "recursive";
 
 	public AbstractCache(boolean autosave,
 	                     com.google.common.cache.Cache<String, MetadataWrapper> cache,
-	                     com.google.common.cache.Cache<String, Object> complete,
-	                     FileMetadataConverter converter)
+	                     com.google.common.cache.Cache<String, String> contents,
+	                     com.google.common.cache.Cache<String, Object> complete)
 	{
 		this.autosave = autosave;
 		this.cache = cache;
+		this.contents = contents;
 		this.complete = complete;
-		this.converter = converter;
+		this.misses = missCache(new Config());
+	}
+
+	public AbstractCache(boolean autosave,
+	                     com.google.common.cache.Cache<String, MetadataWrapper> cache,
+	                     com.google.common.cache.Cache<String, Object> complete)
+	{
+		this(autosave, cache, CacheBuilder.newBuilder().recordStats().<String, String>build(), complete);
 	}
 
 	public AbstractCache(boolean autosave)
+	{
+		this(autosave, new Config());
+	}
+
+	/**
+	 * Create a cache with bounded metadata and contents, see {@link #MAX_ENTRIES}, {@link #MAX_CONTENT_WEIGHT},
+	 * {@link #EXPIRE_AFTER_WRITE} and {@link #EXPIRE_AFTER_ACCESS}. The two budgets are separate,
+	 * so large file contents never push out metadata.
+	 */
+	public AbstractCache(boolean autosave, Config limits)
 	{
 		this.autosave = autosave;
-		this.cache = CacheBuilder.newBuilder().build();
-		this.complete = CacheBuilder.newBuilder().build();
-		converter = new FileMetadataConverter();
+		this.autosaveDelay = ((Number) limits.get(AUTOSAVE_DELAY, DEFAULT_AUTOSAVE_DELAY)).longValue();
+		this.autosaveMaxPending = ((Number) limits.get(AUTOSAVE_MAX_PENDING, DEFAULT_AUTOSAVE_MAX_PENDING)).intValue();
+		this.maxEntries = ((Number) limits.get(MAX_ENTRIES, DEFAULT_MAX_ENTRIES)).longValue();
+		this.complete = CacheBuilder.newBuilder().recordStats().build();
+		this.misses = missCache(limits);
+		this.cache = withExpiry(CacheBuilder.newBuilder(), limits)
+				.maximumSize(maxEntries)
+				.removalListener(new RemovalListener<String, MetadataWrapper>()
+				{
+					public void onRemoval(RemovalNotification<String, MetadataWrapper> notification)
+					{
+						if (notification.wasEvicted()) evicted(notification.getKey());
+					}
+				})
+				.build();
+		this.contents = withExpiry(CacheBuilder.newBuilder(), limits)
+				.maximumWeight(((Number) limits.get(MAX_CONTENT_WEIGHT, DEFAULT_MAX_CONTENT_WEIGHT)).longValue())
+				.weigher(new Weigher<String, String>()
+				{
+					public int weigh(String path, String contents)
+					{
+						return contents.length();
+					}
+				})
+				.build();
 	}
 
-	@Override
-	protected void finalize() throws Throwable
+	/**
+	 * Misses live apart from the metadata, so probing for paths that do not exist never pushes out real entries,
+	 * and a file created by someone else is noticed once the miss expires.
+	 */
+	private static com.google.common.cache.Cache<String, Boolean> missCache(Config limits)
 	{
-		super.finalize();
-		if (!autosave) save();
+		return CacheBuilder.newBuilder()
+				.recordStats()
+				.maximumSize(((Number) limits.get(MAX_MISSES, DEFAULT_MAX_MISSES)).longValue())
+				.expireAfterWrite(((Number) limits.get(EXPIRE_MISS_AFTER_WRITE, DEFAULT_EXPIRE_MISS_AFTER_WRITE)).longValue(), TimeUnit.MILLISECONDS)
+				.build();
 	}
 
+	private static CacheBuilder<Object, Object> withExpiry(CacheBuilder<Object, Object> builder, Config limits)
+	{
+		builder.recordStats();
+		Number afterWrite = (Number) limits.get(EXPIRE_AFTER_WRITE);
+		if (afterWrite != null) builder.expireAfterWrite(afterWrite.longValue(), TimeUnit.MILLISECONDS);
+		Number afterAccess = (Number) limits.get(EXPIRE_AFTER_ACCESS);
+		if (afterAccess != null) builder.expireAfterAccess(afterAccess.longValue(), TimeUnit.MILLISECONDS);
+		return builder;
+	}
+
+	/**
+	 * A listing that lost one of its entries is no longer complete, nor is any recursive listing above it.
+	 */
+	private void evicted(String path)
+	{
+		generation.incrementAndGet();
+		index.remove(path);
+		contents.invalidate(path);
+		changed(path);
+		incomplete(path);
+	}
+
+	/**
+	 * Listings of the parents of a path no longer hold all their entries once the path changed uncached.
+	 */
+	private void incomplete(String path)
+	{
+		String directory = path;
+		while (! directory.isEmpty()) {
+			directory = PathTrie.parent(directory);
+			dropListing(directory);
+		}
+	}
+
+	private void dropListing(String directory)
+	{
+		if (complete.getIfPresent(directory) == null) return;
+		complete.invalidate(directory);
+		listingChanged(directory);
+	}
+
+	/**
+	 * Called whenever the entry of a path was stored or dropped, including evictions. Storages that save
+	 * changes incrementally remember the path and write its {@link #cachedEntry(String)} on the next save.
+	 */
+	protected void changed(String path)
+	{
+	}
+
+	/**
+	 * Called whenever a listing was set complete or no longer is, see {@link #completeListing(String)}.
+	 */
+	protected void listingChanged(String directory)
+	{
+	}
+
+	/**
+	 * Called when everything was dropped at once.
+	 */
+	protected void cleared()
+	{
+	}
+
+	/**
+	 * The entry of a path as it is cached now, or null. Does not count as a cache hit.
+	 */
+	protected MetadataWrapper cachedEntry(String path)
+	{
+		return cache.asMap().get(path);
+	}
+
+	/**
+	 * Null when the listing of a directory is not complete, otherwise whether it is recursive.
+	 */
+	protected Boolean completeListing(String directory)
+	{
+		Object listing = complete.asMap().get(directory);
+		return listing == null ? null : listing == AbstractCache.recursive;
+	}
+
+	/**
+	 * Save pending changes, if there are any. Autosaves and the shutdown hook end up here.
+	 */
+	public void saveIfDirty()
+	{
+		scheduled.set(false);
+		pending.set(0);
+		if (! dirty.compareAndSet(true, false)) return;
+		try {
+			synchronized (saveLock) {
+				save();
+			}
+		} catch (RuntimeException e) {
+			markDirty();
+			throw e;
+		}
+	}
+
+	/**
+	 * How many paths the metadata cache holds at most, see {@link #MAX_ENTRIES}. The default for a cache
+	 * that was built elsewhere and passed in.
+	 */
+	public long getMaxEntries()
+	{
+		return maxEntries;
+	}
+
+	long getAutosaveDelay()
+	{
+		return autosaveDelay;
+	}
+
+	/**
+	 * Take the next autosave on, unless one is already scheduled.
+	 */
+	boolean claimAutosave()
+	{
+		return scheduled.compareAndSet(false, true);
+	}
+
+	/**
+	 * Save pending changes. A cache without autosave should be closed to persist its changes,
+	 * otherwise they are only saved when the JVM shuts down.
+	 */
+	public void close()
+	{
+		saveIfDirty();
+	}
+
+	/**
+	 * Record a change without triggering the autosave routine.
+	 */
+	protected void markDirty()
+	{
+		if (isPersistent() && dirty.compareAndSet(false, true)) Autosaver.track(this);
+	}
+
+	/**
+	 * Whether {@link #save()} persists anything. Changes to a cache that is not persistent are not tracked,
+	 * so it is never saved, nor kept around by the shutdown hook.
+	 */
+	protected boolean isPersistent()
+	{
+		return true;
+	}
+
+
+	/**
+	 * The entry of every cached path, for storages that persist the cache. Misses are short-lived, so they are not included.
+	 */
+	protected List<MetadataWrapper> cachedMetadata()
+	{
+		return new ArrayList<>(cache.asMap().values());
+	}
+
+	/**
+	 * The directories with a complete listing, mapped to whether that listing is recursive.
+	 */
+	protected Map<String, Boolean> completeDirectories()
+	{
+		Map<String, Boolean> directories = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> entry : complete.asMap().entrySet()) {
+			directories.put(entry.getKey(), entry.getValue() == AbstractCache.recursive);
+		}
+		return directories;
+	}
+
+	/**
+	 * Replace whatever is cached with a persisted state. Restoring is not a change, so it does not trigger a save.
+	 */
+	protected void restore(List<MetadataWrapper> entries, Map<String, Boolean> completeDirectories)
+	{
+		cache.invalidateAll();
+		contents.invalidateAll();
+		complete.invalidateAll();
+		misses.invalidateAll();
+		index.clear();
+		// listings go first, so entries that do not fit the limits still mark them incomplete when evicted
+		for (Map.Entry<String, Boolean> directory : completeDirectories.entrySet()) {
+			complete.put(directory.getKey(), directory.getValue() ? AbstractCache.recursive : true);
+		}
+		for (MetadataWrapper entry : entries) {
+			cache.put(entry.getFileMetadata().getPath(), entry);
+			index.add(entry.getFileMetadata().getPath());
+		}
+	}
 
 	public boolean isAutosave()
 	{
@@ -93,11 +390,116 @@ public abstract class AbstractCache implements Cache
 //		ensureParentDirectories(path); //fixme
 	}
 
+	/**
+	 * Update the cached entry of a path with a value the adapter returned. Nothing is read from the filesystem:
+	 * <ul>
+	 *     <li>{@link FileMetadata} replaces the metadata, cached contents are kept when size and timestamp match.
+	 *     Metadata for another path that loses its mimetype is partial;</li>
+	 *     <li>a String is the contents of a file that was just written, any other cached metadata is dropped;</li>
+	 *     <li>a Map or {@link Visibility} updates the given fields only, a "contents" field caches contents read;</li>
+	 *     <li>false records a miss, anything else just records that the path exists.</li>
+	 * </ul>
+	 * Only a FileMetadata is complete. Until one is stored, {@link #getMetadata(String)} returns null for the path,
+	 * while the fields that are known are still served on their own.
+	 */
 	@Override
 	public void updateObject(String path, Object object, boolean autoSave)
 	{
-		cache.put(path, converter.fromPath(path, object));
-		if (autoSave) save();
+		if (object instanceof String) {
+			storeWritten(path, (String) object);
+		} else if (Boolean.FALSE.equals(object)) {
+			storeMiss(path);
+		} else {
+			MetadataWrapper present = cache.getIfPresent(path);
+			boolean known = present != null;
+			FileMetadata metadata;
+			boolean partial = false;
+			if (object instanceof FileMetadata) {
+				metadata = ((FileMetadata) object).copy(path);
+				partial = lostMimetype((FileMetadata) object, metadata);
+				if (! known || ! isSameRevision(present.getFileMetadata(), metadata)) contents.invalidate(path);
+			} else {
+				metadata = known ? present.getFileMetadata().copy(path) : new FileMetadata(path);
+				partial = ! known || present.isPartial();
+				if (! known) contents.invalidate(path);
+				if (object instanceof Visibility) {
+					metadata.setVisibility((Visibility) object);
+				} else if (object instanceof Map) {
+					Map<?, ?> fields = (Map<?, ?>) object;
+					applyFields(metadata, fields);
+					Object text = fields.get("contents");
+					if (text != null) {
+						if (metadata.getType() == null) metadata.setType("file");
+						contents.put(path, (String) text);
+					}
+				}
+			}
+			cache.put(path, new MetadataWrapper(metadata, true, partial));
+			index.add(path);
+			found(path);
+			changed(path);
+		}
+		if (autoSave) {
+			autosave();
+		} else {
+			markDirty();
+		}
+	}
+
+	@Override
+	public void storeWritten(String path)
+	{
+		storeWritten(path, null);
+		autosave();
+	}
+
+	private void storeWritten(String path, String text)
+	{
+		FileMetadata metadata = new FileMetadata(path);
+		metadata.setType("file");
+		cache.put(path, new MetadataWrapper(metadata, true, true));
+		if (text == null) {
+			contents.invalidate(path);
+		} else {
+			contents.put(path, text);
+		}
+		index.add(path);
+		found(path);
+		changed(path);
+	}
+
+	private static void applyFields(FileMetadata metadata, Map<?, ?> fields)
+	{
+		for (Map.Entry<?, ?> field : fields.entrySet()) {
+			Object value = field.getValue();
+			switch (String.valueOf(field.getKey())) {
+				case "type": metadata.setType((String) value); break;
+				case "size": metadata.setSize(value == null ? null : ((Number) value).longValue()); break;
+				case "timestamp": metadata.setTimestamp(value == null ? null : ((Number) value).longValue()); break;
+				case "visibility": metadata.setVisibility((Visibility) value); break;
+				case "mimetype": metadata.setMimetype((String) value); break;
+				default: break;
+			}
+		}
+	}
+
+	private static boolean isSameRevision(FileMetadata cached, FileMetadata fetched)
+	{
+		return cached.getSize() != null && cached.getSize().equals(fetched.getSize())
+				&& cached.getTimestamp() != null && cached.getTimestamp().equals(fetched.getTimestamp());
+	}
+
+	/**
+	 * A path that exists, and so do its parent directories.
+	 */
+	private void found(String path)
+	{
+		if (misses.size() == 0) return;
+		String directory = path;
+		while (! directory.isEmpty()) {
+			misses.invalidate(directory);
+			directory = PathTrie.parent(directory);
+		}
 	}
 
 	@Override
@@ -116,15 +518,31 @@ public abstract class AbstractCache implements Cache
 	public void setComplete(String dirname, boolean recursive)
 	{
 		complete.put(dirname, recursive ? AbstractCache.recursive : true);
+		listingChanged(dirname);
+		markDirty();
+	}
+
+	/**
+	 * Counts evictions and expiries, see {@link com.flysystem.core.cache.Cache#generation()}.
+	 */
+	@Override
+	public long generation()
+	{
+		return generation.get();
 	}
 
+	/**
+	 * Cache the entries of a listing. The directory is only set complete when no entry was evicted meanwhile,
+	 * which also keeps a listing with more entries than {@link #MAX_ENTRIES} from being served incomplete.
+	 */
 	@Override
 	public void storeContents(String directory, List<FileMetadata> contents, boolean recursive)
 	{
+		long before = generation.get();
 		for (FileMetadata content : contents) {
 			updateObject(content.getPath(), content);
 		}
-		setComplete(directory, recursive);
+		if (generation.get() == before) setComplete(directory, recursive);
 		autosave();
 	}
 
@@ -132,35 +550,106 @@ public abstract class AbstractCache implements Cache
 	public void flush()
 	{
 	  	cache.invalidateAll();
+		contents.invalidateAll();
+		complete.invalidateAll();
+		misses.invalidateAll();
+		index.clear();
+		cleared();
 		autosave();
 	}
 
 	@Override
 	public void autosave()
 	{
-	  	if (autosave) save();
+		if (! isPersistent()) return;
+		markDirty();
+		if (! autosave) return;
+		if (autosaveDelay <= 0) {
+			saveIfDirty();
+		} else if (pending.incrementAndGet() >= autosaveMaxPending) {
+			pending.set(0);
+			Autosaver.schedule(this, 0);
+		} else if (claimAutosave()) {
+			Autosaver.schedule(this, autosaveDelay);
+		}
 	}
 
+	/**
+	 * Move the cached entry of a file, or of a directory and everything below it. When the source
+	 * is not cached, whatever is cached for the target is dropped, as it no longer holds.
+	 */
 	@Override
 	public void rename(String from, String to)
 	{
-		if (has(from)) {
-			MetadataWrapper object = cache.getIfPresent(from);
-			cache.invalidate(from);
-			cache.put(to, converter.fromPath(to, object.getObject()));
-			autosave();
+		List<String> moved = index.removeSubtree(from);
+		if (moved.isEmpty()) {
+			forget(to);
+			return;
 		}
+		for (String path : moved) {
+			MetadataWrapper object = cache.getIfPresent(path);
+			String text = contents.getIfPresent(path);
+			cache.invalidate(path);
+			contents.invalidate(path);
+			dropListing(path);
+			changed(path);
+			if (object != null) {
+				copyEntry(object, text, to + path.substring(from.length()));
+			}
+		}
+		autosave();
 	}
 
 	@Override
 	public void copy(String from, String to)
 	{
-		if (has(from)) {
-			MetadataWrapper object = cache.getIfPresent(from);
-			updateObject(to, object.getObject(), true);
+		MetadataWrapper object = cache.getIfPresent(from);
+		if (object != null) {
+			copyEntry(object, contents.getIfPresent(from), to);
+			autosave();
+		} else {
+			forget(to);
+		}
+	}
+
+	private void forget(String path)
+	{
+		cache.invalidate(path);
+		contents.invalidate(path);
+		index.remove(path);
+		changed(path);
+		incomplete(path);
+		markDirty();
+	}
+
+	/**
+	 * Cache an entry under another path. A file whose mimetype has to be detected again for the new path
+	 * becomes partial, so its metadata is read from the adapter instead of being served without one.
+	 */
+	private void copyEntry(MetadataWrapper object, String text, String to)
+	{
+		FileMetadata metadata = object.getFileMetadata().copy(to);
+		boolean partial = object.isPartial() || lostMimetype(object.getFileMetadata(), metadata);
+		cache.put(to, new MetadataWrapper(metadata, object.getObject(), partial));
+		index.add(to);
+		found(to);
+		changed(to);
+		if (text == null) {
+			contents.invalidate(to);
+		} else {
+			contents.put(to, text);
 		}
 	}
 
+	/**
+	 * Whether a copy for another path lost a mimetype the original had or could detect.
+	 */
+	private static boolean lostMimetype(FileMetadata original, FileMetadata copy)
+	{
+		return copy.isFile() && copy.isMimetypeResolved() && copy.getMimetype() == null
+				&& (! original.isMimetypeResolved() || original.getMimetype() != null);
+	}
+
 	@Override
 	public void delete(String path)
 	{
@@ -170,15 +659,16 @@ public abstract class AbstractCache implements Cache
 	@Override
 	public void deleteDir(String dirname)
 	{
-		for (Map.Entry<String, MetadataWrapper> entry : cache.asMap().entrySet()) {
-		   if (entry.getKey().startsWith(dirname)) {
-			   cache.invalidate(entry.getKey());
-		   }
-		}
-
-		if (complete.getIfPresent(dirname) != null) {
-			complete.invalidate(dirname);
+		for (String path : index.removeSubtree(dirname)) {
+			cache.invalidate(path);
+			contents.invalidate(path);
+			dropListing(path);
+			changed(path);
 		}
+		cache.invalidate(dirname);
+		contents.invalidate(dirname);
+		dropListing(dirname);
+		changed(dirname);
 
 		autosave();
 	}
@@ -186,36 +676,88 @@ public abstract class AbstractCache implements Cache
 	@Override
 	public void storeMiss(String path)
 	{
-		cache.put(path, converter.fromPath(path, false));
-		autosave();
+		misses.put(path, true);
+		contents.invalidate(path);
+		index.remove(path);
+		if (cache.getIfPresent(path) != null) {
+			cache.invalidate(path);
+			changed(path);
+			autosave();
+		}
+	}
+
+	@Override
+	public boolean isMissing(String path)
+	{
+		return misses.getIfPresent(path) != null;
 	}
 
 	@Override
 	public boolean has(String path)
 	{
 		MetadataWrapper fromCache = cache.getIfPresent(path);
-		return  fromCache != null &&
-				fromCache.getObject() != null &&
-				fromCache.getObject() != false;
+		return fromCache != null && fromCache.getObject() != null;
 	}
 
 	@Override
 	public String read(String path) throws FileNotFoundException
 	{
-		MetadataWrapper present = cache.getIfPresent(path);
-		if (present == null) return null;
-		return (String) present.getObject();
+		return contents.getIfPresent(path);
 	}
 
+	/**
+	 * List the cached entries of a directory. Only complete when {@link #isComplete(String, boolean)} says so.
+	 * Guava only reports expired entries once it cleans up, so an entry of a complete listing can be gone
+	 * while the listing is still marked complete. The listing is then no longer complete, and null is returned
+	 * so the caller lists the directory again.
+	 */
 	@Override
 	public List<FileMetadata> listContents(String directory, boolean recursive)
 	{
-		//todo implement
-		return null;
+		boolean wasComplete = isComplete(directory, recursive);
+		boolean lost = false;
+		List<FileMetadata> listing = new ArrayList<>();
+		for (String path : index.list(directory, recursive)) {
+			FileMetadata metadata = entry(path);
+			if (metadata != null) {
+				listing.add(metadata);
+			} else {
+				evicted(path);
+				lost = true;
+			}
+		}
+		return lost && wasComplete ? null : listing;
+	}
+
+	/**
+	 * Statistics of the metadata, contents, misses and complete listings caches. Caches that were passed in
+	 * only report statistics when they were built with {@link CacheBuilder#recordStats()}.
+	 */
+	@Override
+	public Map<String, CacheStats> stats()
+	{
+		return ImmutableMap.of(
+				"metadata", cache.stats(),
+				"contents", contents.stats(),
+				"misses", misses.stats(),
+				"listings", complete.stats());
 	}
 
+	/**
+	 * The complete metadata of a path, or null when only some of it is known, see {@link #updateObject(String, Object, boolean)}.
+	 */
 	@Override
 	public FileMetadata getMetadata(String path)
+	{
+		MetadataWrapper present = cache.getIfPresent(path);
+		if (present == null || present.isPartial()) return null;
+		return present.getFileMetadata();
+	}
+
+	/**
+	 * Whatever metadata is cached for a path, complete or not.
+	 */
+	private FileMetadata entry(String path)
 	{
 		MetadataWrapper present = cache.getIfPresent(path);
 		if (present == null) return null;
@@ -225,32 +767,32 @@ public abstract class AbstractCache implements Cache
 	@Override
 	public Long getSize(String path)
 	{
-		MetadataWrapper present = cache.getIfPresent(path);
-		if (present == null) return null;
-		return present.getFileMetadata().getSize();
+		FileMetadata metadata = entry(path);
+		if (metadata == null) return null;
+		return metadata.getSize();
 	}
 
 	@Override
 	public String getMimetype(String path)
 	{
-		MetadataWrapper present = cache.getIfPresent(path);
-		if (present == null) return null;
-		return present.getFileMetadata().getMimetype();
+		FileMetadata metadata = entry(path);
+		if (metadata == null) return null;
+		return metadata.getMimetype();
 	}
 
 	@Override
 	public Long getTimestamp(String path)
 	{
-		MetadataWrapper present = cache.getIfPresent(path);
-		if (present == null) return null;
-		return present.getFileMetadata().getTimestamp();
+		FileMetadata metadata = entry(path);
+		if (metadata == null) return null;
+		return metadata.getTimestamp();
 	}
 
 	@Override
 	public Visibility getVisibility(String path)
 	{
-		MetadataWrapper present = cache.getIfPresent(path);
-		if (present == null) return null;
-		return present.getFileMetadata().getVisibility();
+		FileMetadata metadata = entry(path);
+		if (metadata == null) return null;
+		return metadata.getVisibility();
 	}
 }
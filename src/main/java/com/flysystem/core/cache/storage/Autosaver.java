@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.cache.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the deferred saves of all caches on one background thread, and saves whatever is still unsaved
+ * when the JVM shuts down. A failed save is logged and tried again later, see {@link #retry}.
+ *
+ * @author Zeger Hoogeboom
+ */
+final class Autosaver
+{
+	private static final Logger logger = Logger.getLogger(Autosaver.class.getName());
+	private static final long MIN_RETRY_DELAY = 100;
+	private static final long MAX_RETRY_DELAY = 60000;
+	private static final int MAX_RETRIES = 10;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setDaemon(true).setNameFormat("flysystem-cache-autosave-%d").build());
+
+	/**
+	 * Caches that had unsaved changes at some point. Held weakly, so a cache that is no longer used can still be collected.
+	 */
+	private static final Set<AbstractCache> unsaved = Collections.synchronizedSet(
+			Collections.newSetFromMap(new WeakHashMap<AbstractCache, Boolean>()));
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+		{
+			public void run()
+			{
+				saveAll();
+			}
+		}, "flysystem-cache-shutdown"));
+	}
+
+	private Autosaver()
+	{
+	}
+
+	static void track(AbstractCache cache)
+	{
+		unsaved.add(cache);
+	}
+
+	static void schedule(AbstractCache cache, long delay)
+	{
+		schedule(cache, delay, 0);
+	}
+
+	private static void schedule(final AbstractCache cache, long delay, final int failures)
+	{
+		scheduler.schedule(new Runnable()
+		{
+			public void run()
+			{
+				try {
+					cache.saveIfDirty();
+				} catch (RuntimeException e) {
+					retry(cache, failures + 1, e);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Schedule a failed save again. The delay starts at the autosave delay and doubles with every failure,
+	 * up to a minute. After {@link #MAX_RETRIES} failures in a row, the changes wait for the next change to the cache,
+	 * for it to be closed or for the JVM to shut down.
+	 */
+	private static void retry(AbstractCache cache, int failures, RuntimeException e)
+	{
+		String name = cache.getClass().getSimpleName();
+		if (failures > MAX_RETRIES) {
+			logger.log(Level.SEVERE, "Could not save " + name + " cache, giving up after " + MAX_RETRIES + " retries", e);
+			return;
+		}
+		if (! cache.claimAutosave()) {
+			logger.log(Level.WARNING, "Could not save " + name + " cache, a later autosave tries again", e);
+			return;
+		}
+		long base = Math.max(MIN_RETRY_DELAY, cache.getAutosaveDelay());
+		long delay = Math.min(MAX_RETRY_DELAY, base << Math.min(failures - 1, 20));
+		logger.log(Level.WARNING, "Could not save " + name + " cache, retrying in " + delay + " ms", e);
+		schedule(cache, delay, failures);
+	}
+
+	static void saveAll()
+	{
+		AbstractCache[] caches;
+		synchronized (unsaved) {
+			caches = unsaved.toArray(new AbstractCache[unsaved.size()]);
+		}
+		for (AbstractCache cache : caches) {
+			try {
+				cache.saveIfDirty();
+			} catch (RuntimeException e) {
+				// keep saving the other caches
+				logger.log(Level.WARNING, "Could not save " + cache.getClass().getSimpleName() + " cache", e);
+			}
+		}
+	}
+}
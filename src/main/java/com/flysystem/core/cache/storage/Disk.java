@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.cache.storage;
+
+import com.flysystem.core.Config;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.MetadataWrapper;
+import com.flysystem.core.Visibility;
+import com.flysystem.core.exception.FlysystemGenericException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the cached metadata in a binary file, so a restarted process starts warm instead of listing everything again.
+ * The file holds a snapshot followed by a log of changes. A save only appends the entries and listings that changed
+ * since the previous save, and the snapshot is rewritten once the log holds more records than the snapshot itself,
+ * or than {@link #COMPACT_AFTER}. The file is loaded on construction. A missing, outdated or damaged file is ignored
+ * and the cache starts empty, while an append that was cut off only loses the changes it held.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class Disk extends AbstractCache
+{
+	/**
+	 * How many changes may be appended before the snapshot is rewritten, unless the snapshot holds more. Defaults to 1024.
+	 */
+	public static final String COMPACT_AFTER = "compact_after";
+
+	private static final int DEFAULT_COMPACT_AFTER = 1024;
+	private static final int MAGIC = 0x464c5943;
+	private static final int VERSION = 3;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int SIZE = 1;
+	private static final int TIMESTAMP = 1 << 1;
+	private static final int VISIBILITY = 1 << 2;
+	private static final int MIMETYPE = 1 << 3;
+	private static final int TYPE = 1 << 4;
+	private static final int PARTIAL = 1 << 5;
+
+	private static final int ENTRY = 1;
+	private static final int REMOVED = 2;
+	private static final int LISTING = 3;
+
+	private static final int INCOMPLETE = 0;
+	private static final int COMPLETE = 1;
+	private static final int RECURSIVE = 2;
+
+	private final File file;
+	private final int compactAfter;
+	private final Set<String> changedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final Set<String> changedListings = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private volatile boolean compact = true;
+	private int snapshotSize;
+	private int appended;
+
+	public Disk(File file, boolean autosave, Config limits)
+	{
+		super(autosave, limits);
+		this.file = file;
+		this.compactAfter = ((Number) limits.get(COMPACT_AFTER, DEFAULT_COMPACT_AFTER)).intValue();
+		load();
+	}
+
+	public Disk(File file, boolean autosave)
+	{
+		this(file, autosave, new Config());
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	@Override
+	protected void changed(String path)
+	{
+		changedPaths.add(path);
+	}
+
+	@Override
+	protected void listingChanged(String directory)
+	{
+		changedListings.add(directory);
+	}
+
+	@Override
+	protected void cleared()
+	{
+		compact = true;
+	}
+
+	/**
+	 * Append what changed since the previous save, or rewrite the snapshot when the log grew too long.
+	 */
+	@Override
+	public void save()
+	{
+		int changes = changedPaths.size() + changedListings.size();
+		if (compact || appended + changes > Math.max(compactAfter, snapshotSize)) {
+			compact();
+		} else if (changes > 0) {
+			append();
+		}
+	}
+
+	/**
+	 * Write the cache to a temporary file next to the target, then move it in place,
+	 * so a crash halfway never leaves a damaged cache behind.
+	 */
+	private void compact()
+	{
+		// forget the changes before reading the state, whatever changes meanwhile is appended by the next save
+		changedPaths.clear();
+		changedListings.clear();
+		compact = false;
+		List<MetadataWrapper> entries = cachedMetadata();
+		Map<String, Boolean> directories = completeDirectories();
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temp = new File(parent, file.getName() + ".tmp");
+		try {
+			if (! parent.isDirectory() && ! parent.mkdirs()) throw new IOException("Could not create " + parent);
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(entries.size());
+				for (MetadataWrapper entry : entries) {
+					write(output, entry);
+				}
+				output.writeInt(directories.size());
+				for (Map.Entry<String, Boolean> directory : directories.entrySet()) {
+					output.writeUTF(directory.getKey());
+					output.writeBoolean(directory.getValue());
+				}
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			compact = true;
+			temp.delete();
+			throw new FlysystemGenericException(e);
+		}
+		snapshotSize = entries.size() + directories.size();
+		appended = 0;
+	}
+
+	/**
+	 * Append the current state of every changed path and listing. When that fails the log may end halfway
+	 * a record, so the next save rewrites the snapshot.
+	 */
+	private void append()
+	{
+		int records = 0;
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE))) {
+			for (Iterator<String> paths = changedPaths.iterator(); paths.hasNext(); records++) {
+				String path = paths.next();
+				paths.remove();
+				MetadataWrapper entry = cachedEntry(path);
+				if (entry == null) {
+					output.writeByte(REMOVED);
+					output.writeUTF(path);
+				} else {
+					output.writeByte(ENTRY);
+					write(output, entry);
+				}
+			}
+			for (Iterator<String> directories = changedListings.iterator(); directories.hasNext(); records++) {
+				String directory = directories.next();
+				directories.remove();
+				Boolean listing = completeListing(directory);
+				output.writeByte(LISTING);
+				output.writeUTF(directory);
+				output.writeByte(listing == null ? INCOMPLETE : listing ? RECURSIVE : COMPLETE);
+			}
+		} catch (IOException e) {
+			compact = true;
+			throw new FlysystemGenericException(e);
+		}
+		appended += records;
+	}
+
+	@Override
+	public void load()
+	{
+		compact = true;
+		if (! file.isFile()) return;
+		Map<String, MetadataWrapper> entries = new LinkedHashMap<>();
+		Map<String, Boolean> directories = new LinkedHashMap<>();
+		int snapshot;
+		int records = 0;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) return;
+			for (int i = input.readInt(); i > 0; i--) {
+				MetadataWrapper entry = read(input);
+				entries.put(entry.getFileMetadata().getPath(), entry);
+			}
+			for (int i = input.readInt(); i > 0; i--) {
+				directories.put(input.readUTF(), input.readBoolean());
+			}
+			snapshot = entries.size() + directories.size();
+			try {
+				for (int type = input.read(); type != -1; type = input.read(), records++) {
+					replay(type, input, entries, directories);
+				}
+				compact = false;
+			} catch (IOException | IllegalArgumentException e) {
+				// an append that was cut off, what came before it still holds and the next save rewrites the file
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// a damaged cache is as good as none, the adapter is asked again
+			return;
+		}
+		snapshotSize = snapshot;
+		appended = records;
+		changedPaths.clear();
+		changedListings.clear();
+		restore(new ArrayList<>(entries.values()), directories);
+	}
+
+	private static void replay(int type, DataInputStream input, Map<String, MetadataWrapper> entries, Map<String, Boolean> directories) throws IOException
+	{
+		switch (type) {
+			case ENTRY:
+				MetadataWrapper entry = read(input);
+				entries.put(entry.getFileMetadata().getPath(), entry);
+				break;
+			case REMOVED:
+				entries.remove(input.readUTF());
+				break;
+			case LISTING:
+				String directory = input.readUTF();
+				int listing = input.readUnsignedByte();
+				if (listing == INCOMPLETE) {
+					directories.remove(directory);
+				} else {
+					directories.put(directory, listing == RECURSIVE);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown record " + type);
+		}
+	}
+
+	/**
+	 * Write an entry without detecting mimetypes. A file whose mimetype was not detected yet is stored partial,
+	 * so after a restart its metadata is read from the adapter once instead of being served without a mimetype.
+	 */
+	private static void write(DataOutputStream output, MetadataWrapper entry) throws IOException
+	{
+		FileMetadata metadata = entry.getFileMetadata();
+		boolean resolved = metadata.isMimetypeResolved();
+		String mimetype = resolved ? metadata.getMimetype() : null;
+		int fields = (metadata.getSize() != null ? SIZE : 0)
+				| (metadata.getTimestamp() != null ? TIMESTAMP : 0)
+				| (metadata.getVisibility() != null ? VISIBILITY : 0)
+				| (mimetype != null ? MIMETYPE : 0)
+				| (metadata.getType() != null ? TYPE : 0)
+				| (entry.isPartial() || (! resolved && metadata.isFile()) ? PARTIAL : 0);
+		output.writeUTF(metadata.getPath());
+		output.writeByte(fields);
+		if ((fields & SIZE) != 0) output.writeLong(metadata.getSize());
+		if ((fields & TIMESTAMP) != 0) output.writeLong(metadata.getTimestamp());
+		if ((fields & VISIBILITY) != 0) output.writeByte(metadata.getVisibility().ordinal());
+		if ((fields & MIMETYPE) != 0) output.writeUTF(mimetype);
+		if ((fields & TYPE) != 0) output.writeUTF(metadata.getType());
+	}
+
+	private static MetadataWrapper read(DataInputStream input) throws IOException
+	{
+		FileMetadata metadata = new FileMetadata(input.readUTF());
+		int fields = input.readUnsignedByte();
+		if ((fields & SIZE) != 0) metadata.setSize(input.readLong());
+		if ((fields & TIMESTAMP) != 0) metadata.setTimestamp(input.readLong());
+		if ((fields & VISIBILITY) != 0) metadata.setVisibility(visibility(input.readUnsignedByte()));
+		if ((fields & MIMETYPE) != 0) metadata.setMimetype(input.readUTF());
+		if ((fields & TYPE) != 0) metadata.setType(input.readUTF());
+		return new MetadataWrapper(metadata, true, (fields & PARTIAL) != 0);
+	}
+
+	private static Visibility visibility(int ordinal)
+	{
+		Visibility[] values = Visibility.values();
+		if (ordinal >= values.length) throw new IllegalArgumentException("Unknown visibility " + ordinal);
+		return values[ordinal];
+	}
+}
@@ -22,8 +22,8 @@
 
 package com.flysystem.core.cache.storage;
 
+import com.flysystem.core.Config;
 import com.flysystem.core.MetadataWrapper;
-import com.flysystem.core.adapter.local.FileMetadataConverter;
 import com.google.common.cache.Cache;
 
 /**
@@ -32,9 +32,19 @@ import com.google.common.cache.Cache;
 public class Memory extends AbstractCache
 {
 
-	public Memory(boolean autosave, Cache<String, MetadataWrapper> cache, Cache<String, Object> complete, FileMetadataConverter converter)
+	public Memory(boolean autosave, Cache<String, MetadataWrapper> cache, Cache<String, Object> complete)
 	{
-		super(autosave, cache, complete, converter);
+		super(autosave, cache, complete);
+	}
+
+	public Memory(boolean autosave, Cache<String, MetadataWrapper> cache, Cache<String, String> contents, Cache<String, Object> complete)
+	{
+		super(autosave, cache, contents, complete);
+	}
+
+	public Memory(boolean autosave, Config limits)
+	{
+		super(autosave, limits);
 	}
 
 	public Memory(boolean autosave)
@@ -42,6 +52,12 @@ public class Memory extends AbstractCache
 		super(autosave);
 	}
 
+	@Override
+	protected boolean isPersistent()
+	{
+		return false;
+	}
+
 	@Override
 	public void save()
 	{
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.cache.storage;
+
+import com.flysystem.core.cache.ContentCache;
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps file contents outside the Java heap, so a large cache of hot files adds nothing to garbage collection.
+ *
+ * Contents are stored UTF-8 encoded in fixed size blocks carved out of direct buffer slabs. Slabs are allocated
+ * as they are needed, up to the capacity. When the cache is full the least recently used files are evicted.
+ *
+ * Reads only hold the lock to look up and pin an entry, the contents are copied outside of it. The blocks of an
+ * entry that is replaced or evicted while it is read are only reused once the last reader is done.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class OffHeapContentCache implements ContentCache
+{
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+	public static final int DEFAULT_SLAB_SIZE = 64 * 1024 * 1024;
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final int blockSize;
+	private final int blocksPerSlab;
+	private final int totalBlocks;
+	private final int maxEntrySize;
+	private final ByteBuffer[] slabs;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int[] freeBlocks = new int[64];
+	private int freeCount;
+	private int allocatedBlocks;
+
+	/**
+	 * @param capacity Maximum number of bytes to keep off-heap.
+	 */
+	public OffHeapContentCache(long capacity)
+	{
+		this(capacity, DEFAULT_BLOCK_SIZE, DEFAULT_SLAB_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * @param capacity     Maximum number of bytes to keep off-heap.
+	 * @param blockSize    Unit of allocation in bytes, a file takes up a whole number of blocks.
+	 * @param slabSize     Size in bytes of each direct buffer that is allocated.
+	 * @param maxEntrySize Files larger than this many bytes are not cached.
+	 */
+	public OffHeapContentCache(long capacity, int blockSize, int slabSize, int maxEntrySize)
+	{
+		Preconditions.checkArgument(blockSize > 0, "Block size must be positive.");
+		Preconditions.checkArgument(slabSize >= blockSize, "Slab size must be at least the block size.");
+		Preconditions.checkArgument(capacity >= blockSize, "Capacity must be at least the block size.");
+		this.blockSize = blockSize;
+		this.blocksPerSlab = slabSize / blockSize;
+		this.totalBlocks = (int) Math.min(capacity / blockSize, Integer.MAX_VALUE);
+		this.maxEntrySize = (int) Math.min(maxEntrySize, (long) totalBlocks * blockSize);
+		this.slabs = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+	}
+
+	public String get(String path)
+	{
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(path);
+			if (entry == null) return null;
+			entry.readers++;
+		}
+		byte[] bytes = new byte[entry.length];
+		try {
+			int offset = 0;
+			for (int block : entry.blocks) {
+				int length = Math.min(blockSize, entry.length - offset);
+				ByteBuffer slab = slabs[block / blocksPerSlab].duplicate();
+				slab.position((block % blocksPerSlab) * blockSize);
+				slab.get(bytes, offset, length);
+				offset += length;
+			}
+		} finally {
+			synchronized (this) {
+				if (--entry.readers == 0 && entry.released) free(entry);
+			}
+		}
+		return new String(bytes, UTF_8);
+	}
+
+	public void put(String path, String contents)
+	{
+		byte[] bytes = contents.getBytes(UTF_8);
+		synchronized (this) {
+			release(entries.remove(path));
+			if (bytes.length > maxEntrySize) return;
+
+			int[] blocks = new int[(bytes.length + blockSize - 1) / blockSize];
+			for (int i = 0; i < blocks.length; i++) {
+				blocks[i] = allocateBlock();
+				if (blocks[i] < 0) {
+					// everything else is pinned by readers, this file is not cached
+					free(new Entry(Arrays.copyOf(blocks, i), 0));
+					return;
+				}
+			}
+			int offset = 0;
+			for (int i = 0; i < blocks.length; i++) {
+				int length = Math.min(blockSize, bytes.length - offset);
+				position(blocks[i]).put(bytes, offset, length);
+				offset += length;
+			}
+			entries.put(path, new Entry(blocks, bytes.length));
+		}
+	}
+
+	public synchronized void invalidate(String path)
+	{
+		release(entries.remove(path));
+	}
+
+	public synchronized void invalidateDirectory(String dirname)
+	{
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Entry> entry = iterator.next();
+			if (isInDirectory(entry.getKey(), dirname)) {
+				release(entry.getValue());
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized void invalidateAll()
+	{
+		for (Entry entry : entries.values()) {
+			release(entry);
+		}
+		entries.clear();
+	}
+
+	/**
+	 * @return The number of cached files.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return The number of bytes allocated off-heap so far.
+	 */
+	public synchronized long allocatedBytes()
+	{
+		long bytes = 0;
+		for (ByteBuffer slab : slabs) {
+			if (slab != null) bytes += slab.capacity();
+		}
+		return bytes;
+	}
+
+	private static boolean isInDirectory(String path, String dirname)
+	{
+		if (dirname.isEmpty()) return true;
+		if (! path.startsWith(dirname) || path.length() == dirname.length()) return false;
+		char separator = path.charAt(dirname.length());
+		return separator == '/' || separator == '\\';
+	}
+
+	private ByteBuffer position(int block)
+	{
+		ByteBuffer slab = slabs[block / blocksPerSlab];
+		slab.clear().position((block % blocksPerSlab) * blockSize);
+		return slab;
+	}
+
+	/**
+	 * @return A free block, or -1 when every block is taken by entries that are being read.
+	 */
+	private int allocateBlock()
+	{
+		while (freeCount == 0 && allocatedBlocks == totalBlocks) {
+			Iterator<Entry> eldest = entries.values().iterator();
+			if (! eldest.hasNext()) return -1;
+			release(eldest.next());
+			eldest.remove();
+		}
+		if (freeCount > 0) return freeBlocks[--freeCount];
+
+		if (allocatedBlocks % blocksPerSlab == 0) {
+			int blocks = Math.min(blocksPerSlab, totalBlocks - allocatedBlocks);
+			slabs[allocatedBlocks / blocksPerSlab] = ByteBuffer.allocateDirect(blocks * blockSize);
+		}
+		return allocatedBlocks++;
+	}
+
+	private void release(Entry entry)
+	{
+		if (entry == null) return;
+		entry.released = true;
+		if (entry.readers == 0) free(entry);
+	}
+
+	private void free(Entry entry)
+	{
+		if (freeCount + entry.blocks.length > freeBlocks.length) {
+			freeBlocks = Arrays.copyOf(freeBlocks, Math.max(freeBlocks.length * 2, freeCount + entry.blocks.length));
+		}
+		for (int block : entry.blocks) {
+			freeBlocks[freeCount++] = block;
+		}
+	}
+
+	private static class Entry
+	{
+		final int[] blocks;
+		final int length;
+		int readers;
+		boolean released;
+
+		Entry(int[] blocks, int length)
+		{
+			this.blocks = blocks;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.cache.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cached paths arranged as a tree of path segments. Listing, removing or moving a directory
+ * only touches its own subtree, no matter how many other paths are cached. Segments are matched whole,
+ * so "foo" never matches "foobar".
+ *
+ * @author Zeger Hoogeboom
+ */
+class PathTrie
+{
+	private final Node root = new Node(null, "", "");
+
+	/**
+	 * Add a path, creating nodes for its parent directories.
+	 */
+	synchronized void add(String path)
+	{
+		Node node = root;
+		int start = 0;
+		while (start < path.length()) {
+			int end = nextSeparator(path, start);
+			String segment = path.substring(start, end);
+			Node child = node.children.get(segment);
+			if (child == null) {
+				child = new Node(node, segment, path.substring(0, end));
+				node.children.put(segment, child);
+			}
+			node = child;
+			start = end + 1;
+		}
+		node.entry = true;
+	}
+
+	/**
+	 * Remove a path. Directories below it are kept.
+	 */
+	synchronized void remove(String path)
+	{
+		Node node = find(path);
+		if (node == null) return;
+		node.entry = false;
+		prune(node);
+	}
+
+	/**
+	 * List the paths in a directory, including those in subdirectories when listing recursively.
+	 */
+	synchronized List<String> list(String directory, boolean recursive)
+	{
+		Node node = find(directory);
+		if (node == null) return Collections.emptyList();
+		if (! recursive) {
+			List<String> paths = new ArrayList<>(node.children.size());
+			for (Node child : node.children.values()) {
+				if (child.entry) paths.add(child.path);
+			}
+			return paths;
+		}
+		List<String> paths = collect(node, true);
+		if (node.entry) paths.remove(0);
+		return paths;
+	}
+
+	/**
+	 * Remove a path and everything below it.
+	 *
+	 * @return The removed paths, including directories that were only known through the paths below them.
+	 */
+	synchronized List<String> removeSubtree(String path)
+	{
+		Node node = find(path);
+		if (node == null) return Collections.emptyList();
+		List<String> paths = collect(node, false);
+		if (node == root) {
+			root.children.clear();
+			root.entry = false;
+		} else {
+			node.parent.children.remove(node.segment);
+			prune(node.parent);
+		}
+		return paths;
+	}
+
+	synchronized void clear()
+	{
+		root.children.clear();
+		root.entry = false;
+	}
+
+	static String parent(String path)
+	{
+		int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+		return separator < 0 ? "" : path.substring(0, separator);
+	}
+
+	private Node find(String path)
+	{
+		Node node = root;
+		int start = 0;
+		while (node != null && start < path.length()) {
+			int end = nextSeparator(path, start);
+			node = node.children.get(path.substring(start, end));
+			start = end + 1;
+		}
+		return node;
+	}
+
+	/**
+	 * Collect the paths of a node and all nodes below it, parents before their children.
+	 */
+	private static List<String> collect(Node node, boolean entriesOnly)
+	{
+		List<String> paths = new ArrayList<>();
+		Deque<Node> pending = new ArrayDeque<>();
+		pending.push(node);
+		while (! pending.isEmpty()) {
+			Node current = pending.pop();
+			if (current.entry || ! entriesOnly) paths.add(current.path);
+			for (Node child : current.children.values()) {
+				pending.push(child);
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Drop nodes that are neither cached nor lead to a cached path.
+	 */
+	private void prune(Node node)
+	{
+		while (node != root && ! node.entry && node.children.isEmpty()) {
+			node.parent.children.remove(node.segment);
+			node = node.parent;
+		}
+	}
+
+	private static int nextSeparator(String path, int from)
+	{
+		for (int i = from; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '/' || c == '\\') return i;
+		}
+		return path.length();
+	}
+
+	private static class Node
+	{
+		final Node parent;
+		final String segment;
+		final String path;
+		final Map<String, Node> children = new LinkedHashMap<>();
+		boolean entry;
+
+		Node(Node parent, String segment, String path)
+		{
+			this.parent = parent;
+			this.segment = segment;
+			this.path = path;
+		}
+	}
+}
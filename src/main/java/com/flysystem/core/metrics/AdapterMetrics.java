@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+import com.flysystem.core.exception.FlysystemGenericException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps counts, bytes and a latency histogram per operation, and exposes them over JMX
+ * under com.flysystem:type=Adapter,name=&lt;name&gt;. This is the sink an {@link InstrumentedAdapter} uses by default.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class AdapterMetrics implements MetricsSink, AdapterMetricsMXBean
+{
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+	private ObjectName objectName;
+
+	/**
+	 * The measurements of a single operation.
+	 */
+	public static class Operation
+	{
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLong bytesIn = new AtomicLong();
+		private final AtomicLong bytesOut = new AtomicLong();
+		private final Histogram latency = new Histogram();
+
+		public long getCount()
+		{
+			return latency.getCount();
+		}
+
+		public long getErrors()
+		{
+			return errors.get();
+		}
+
+		public long getBytesIn()
+		{
+			return bytesIn.get();
+		}
+
+		public long getBytesOut()
+		{
+			return bytesOut.get();
+		}
+
+		public Histogram getLatency()
+		{
+			return latency;
+		}
+	}
+
+	public void record(String operation, long nanos, long bytesIn, long bytesOut, boolean failed)
+	{
+		Operation measured = operation(operation);
+		measured.latency.record(nanos);
+		if (failed) measured.errors.incrementAndGet();
+		if (bytesIn > 0) measured.bytesIn.addAndGet(bytesIn);
+		if (bytesOut > 0) measured.bytesOut.addAndGet(bytesOut);
+	}
+
+	/**
+	 * The measurements of an operation, or null when it did not run yet.
+	 */
+	public Operation get(String operation)
+	{
+		return operations.get(operation);
+	}
+
+	private Operation operation(String name)
+	{
+		Operation operation = operations.get(name);
+		if (operation == null) {
+			Operation created = new Operation();
+			operation = operations.putIfAbsent(name, created);
+			if (operation == null) operation = created;
+		}
+		return operation;
+	}
+
+	/**
+	 * Register with the platform MBean server.
+	 */
+	public ObjectName register(String name)
+	{
+		try {
+			ObjectName objectName = new ObjectName("com.flysystem:type=Adapter,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+			return objectName;
+		} catch (JMException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	public void unregister()
+	{
+		if (objectName == null) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+			objectName = null;
+		} catch (JMException e) {
+			throw new FlysystemGenericException(e);
+		}
+	}
+
+	public Map<String, Long> getCounts()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().getCount());
+		}
+		return values;
+	}
+
+	public Map<String, Long> getErrorCounts()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().getErrors());
+		}
+		return values;
+	}
+
+	public Map<String, Long> getBytesIn()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().getBytesIn());
+		}
+		return values;
+	}
+
+	public Map<String, Long> getBytesOut()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().getBytesOut());
+		}
+		return values;
+	}
+
+	public Map<String, Double> getMeanLatencies()
+	{
+		Map<String, Double> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().latency.getMean());
+		}
+		return values;
+	}
+
+	public Map<String, Long> getMedianLatencies()
+	{
+		return percentiles(50);
+	}
+
+	public Map<String, Long> getP99Latencies()
+	{
+		return percentiles(99);
+	}
+
+	public Map<String, Long> getMaxLatencies()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().latency.getMax());
+		}
+		return values;
+	}
+
+	private Map<String, Long> percentiles(double percentile)
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+			values.put(operation.getKey(), operation.getValue().latency.getValueAtPercentile(percentile));
+		}
+		return values;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+/**
+ * Records the filesystem operations of {@link com.flysystem.core.FilesystemImpl} and the Local adapter as timed events.
+ * See {@link Events} for the recorder in use.
+ * <p>
+ * Streams are handed to the adapter or the caller as they are, so they keep their fast paths, like the file channel
+ * behind a FileInputStream. The Filesystem events of stream operations therefore report 0 bytes, and its readStream
+ * event ends once the stream is open, before it is read. The Local events count the bytes actually transferred.
+ *
+ * @author Zeger Hoogeboom
+ */
+public interface EventRecorder
+{
+	/**
+	 * A recorder that records nothing.
+	 */
+	EventRecorder NONE = new EventRecorder()
+	{
+		public Event begin(String layer, String operation, String path)
+		{
+			return null;
+		}
+	};
+
+	/**
+	 * Start timing an operation.
+	 *
+	 * @param layer     Where the operation runs, like "Filesystem" or "Local".
+	 * @param operation The method, like "read" or "copy".
+	 * @return The event to end once the operation is done, or null when events are not recorded right now.
+	 */
+	Event begin(String layer, String operation, String path);
+
+	interface Event
+	{
+		/**
+		 * Finish the event. Operations that throw are not ended, so they are not recorded.
+		 *
+		 * @param bytes   Bytes read or written, 0 when unknown, as for streams passing through the Filesystem layer.
+		 * @param entries Number of entries listed or affected.
+		 */
+		void end(long bytes, long entries);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+import com.google.common.base.Utf8;
+
+/**
+ * Holds the {@link EventRecorder} used by the whole library. On a JVM with Java Flight Recorder, operations
+ * show up in recordings as "Flysystem Operation" events, which cost next to nothing while that event is disabled.
+ * Other JVMs record nothing, unless another recorder is set.
+ *
+ * @author Zeger Hoogeboom
+ */
+public final class Events
+{
+	private static volatile EventRecorder recorder = defaultRecorder();
+
+	private Events()
+	{
+	}
+
+	public static EventRecorder getRecorder()
+	{
+		return recorder;
+	}
+
+	public static void setRecorder(EventRecorder recorder)
+	{
+		Events.recorder = recorder == null ? EventRecorder.NONE : recorder;
+	}
+
+	/**
+	 * @see EventRecorder#begin(String, String, String)
+	 */
+	public static EventRecorder.Event begin(String layer, String operation, String path)
+	{
+		return recorder.begin(layer, operation, path);
+	}
+
+	/**
+	 * End an event, if one was started.
+	 */
+	public static void end(EventRecorder.Event event, long bytes, long entries)
+	{
+		if (event != null) event.end(bytes, entries);
+	}
+
+	/**
+	 * End an event for an operation on the given contents, counting their bytes as UTF-8 only if there is an event.
+	 */
+	public static void end(EventRecorder.Event event, String contents)
+	{
+		if (event != null) event.end(contents == null ? 0 : Utf8.encodedLength(contents), 0);
+	}
+
+	/**
+	 * Use JFR when the JVM has it. The recorder is loaded by name, so this class still loads without jdk.jfr.
+	 */
+	private static EventRecorder defaultRecorder()
+	{
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (EventRecorder) Class.forName("com.flysystem.core.metrics.JfrEventRecorder").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return EventRecorder.NONE;
+		}
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+import com.flysystem.core.Adapter;
+import com.flysystem.core.Config;
+import com.flysystem.core.ContentIterator;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.Visibility;
+import com.flysystem.core.exception.FileExistsException;
+import com.flysystem.core.exception.FileNotFoundException;
+import com.google.common.base.Utf8;
+import com.google.common.io.CountingInputStream;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Measures every operation of the wrapped adapter: how long it took, whether it threw, and how many bytes went in
+ * or came out. Contents are counted as UTF-8. The measurements go to a {@link MetricsSink},
+ * an {@link AdapterMetrics} unless another one is given.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class InstrumentedAdapter implements Adapter
+{
+	private final Adapter adapter;
+	private final MetricsSink sink;
+
+	public InstrumentedAdapter(Adapter adapter)
+	{
+		this(adapter, new AdapterMetrics());
+	}
+
+	public InstrumentedAdapter(Adapter adapter, MetricsSink sink)
+	{
+		this.adapter = adapter;
+		this.sink = sink;
+	}
+
+	public Adapter getAdapter()
+	{
+		return adapter;
+	}
+
+	public MetricsSink getSink()
+	{
+		return sink;
+	}
+
+	public boolean has(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.has(path);
+			failed = false;
+			return result;
+		} finally {
+			record("has", start, 0, 0, failed);
+		}
+	}
+
+	public String read(String path) throws FileNotFoundException
+	{
+		long start = System.nanoTime();
+		long bytes = 0;
+		boolean failed = true;
+		try {
+			String contents = adapter.read(path);
+			bytes = length(contents);
+			failed = false;
+			return contents;
+		} finally {
+			record("read", start, 0, bytes, failed);
+		}
+	}
+
+	/**
+	 * The stream is measured when it is closed: the time it took to open it and the bytes read from it.
+	 */
+	public InputStream readStream(String path) throws FileNotFoundException
+	{
+		final long start = System.nanoTime();
+		InputStream stream;
+		try {
+			stream = adapter.readStream(path);
+		} catch (RuntimeException e) {
+			record("readStream", start, 0, 0, true);
+			throw e;
+		}
+		if (stream == null) {
+			record("readStream", start, 0, 0, false);
+			return null;
+		}
+		final long opened = System.nanoTime() - start;
+		final CountingInputStream counting = new CountingInputStream(stream);
+		return new FilterInputStream(counting)
+		{
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException
+			{
+				super.close();
+				if (closed) return;
+				closed = true;
+				sink.record("readStream", opened, 0, counting.getCount(), false);
+			}
+		};
+	}
+
+	public List<FileMetadata> listContents(String directory, boolean recursive)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			List<FileMetadata> result = adapter.listContents(directory, recursive);
+			failed = false;
+			return result;
+		} finally {
+			record("listContents", start, 0, 0, failed);
+		}
+	}
+
+	/**
+	 * Only measures creating the iterator, not iterating it.
+	 */
+	public ContentIterator iterateContents(String directory, boolean recursive)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			ContentIterator result = adapter.iterateContents(directory, recursive);
+			failed = false;
+			return result;
+		} finally {
+			record("iterateContents", start, 0, 0, failed);
+		}
+	}
+
+	public FileMetadata getMetadata(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			FileMetadata result = adapter.getMetadata(path);
+			failed = false;
+			return result;
+		} finally {
+			record("getMetadata", start, 0, 0, failed);
+		}
+	}
+
+	public Long getSize(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Long result = adapter.getSize(path);
+			failed = false;
+			return result;
+		} finally {
+			record("getSize", start, 0, 0, failed);
+		}
+	}
+
+	public String getMimetype(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			String result = adapter.getMimetype(path);
+			failed = false;
+			return result;
+		} finally {
+			record("getMimetype", start, 0, 0, failed);
+		}
+	}
+
+	public Long getTimestamp(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Long result = adapter.getTimestamp(path);
+			failed = false;
+			return result;
+		} finally {
+			record("getTimestamp", start, 0, 0, failed);
+		}
+	}
+
+	public Visibility getVisibility(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Visibility result = adapter.getVisibility(path);
+			failed = false;
+			return result;
+		} finally {
+			record("getVisibility", start, 0, 0, failed);
+		}
+	}
+
+	public boolean write(String path, String contents, Config config)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.write(path, contents, config);
+			failed = false;
+			return result;
+		} finally {
+			record("write", start, length(contents), 0, failed);
+		}
+	}
+
+	public boolean write(String path, String contents)
+	{
+		return write(path, contents, new Config());
+	}
+
+	public boolean update(String path, String contents)
+	{
+		return update(path, contents, new Config());
+	}
+
+	public boolean update(String path, String contents, Config config)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.update(path, contents, config);
+			failed = false;
+			return result;
+		} finally {
+			record("update", start, length(contents), 0, failed);
+		}
+	}
+
+	public boolean writeStream(String path, InputStream contents, Config config)
+	{
+		long start = System.nanoTime();
+		StreamCounter counter = new StreamCounter(contents);
+		boolean failed = true;
+		try {
+			boolean result = adapter.writeStream(path, counter.stream, config);
+			failed = false;
+			return result;
+		} finally {
+			record("writeStream", start, counter.count(), 0, failed);
+		}
+	}
+
+	public boolean writeStream(String path, InputStream contents)
+	{
+		return writeStream(path, contents, new Config());
+	}
+
+	public boolean updateStream(String path, InputStream contents, Config config)
+	{
+		long start = System.nanoTime();
+		StreamCounter counter = new StreamCounter(contents);
+		boolean failed = true;
+		try {
+			boolean result = adapter.updateStream(path, counter.stream, config);
+			failed = false;
+			return result;
+		} finally {
+			record("updateStream", start, counter.count(), 0, failed);
+		}
+	}
+
+	public boolean updateStream(String path, InputStream contents)
+	{
+		return updateStream(path, contents, new Config());
+	}
+
+	public boolean rename(String from, String to) throws FileExistsException, FileNotFoundException
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.rename(from, to);
+			failed = false;
+			return result;
+		} finally {
+			record("rename", start, 0, 0, failed);
+		}
+	}
+
+	public boolean copy(String path, String newpath, Config config)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.copy(path, newpath, config);
+			failed = false;
+			return result;
+		} finally {
+			record("copy", start, 0, 0, failed);
+		}
+	}
+
+	public boolean copy(String path, String newpath)
+	{
+		return copy(path, newpath, new Config());
+	}
+
+	public boolean delete(String path)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.delete(path);
+			failed = false;
+			return result;
+		} finally {
+			record("delete", start, 0, 0, failed);
+		}
+	}
+
+	public boolean deleteDir(String dirname)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.deleteDir(dirname);
+			failed = false;
+			return result;
+		} finally {
+			record("deleteDir", start, 0, 0, failed);
+		}
+	}
+
+	public boolean createDir(String dirname, Config config)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.createDir(dirname, config);
+			failed = false;
+			return result;
+		} finally {
+			record("createDir", start, 0, 0, failed);
+		}
+	}
+
+	public boolean createDir(String dirname)
+	{
+		return createDir(dirname, new Config());
+	}
+
+	public boolean setVisibility(String path, Visibility visibility)
+	{
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			boolean result = adapter.setVisibility(path, visibility);
+			failed = false;
+			return result;
+		} finally {
+			record("setVisibility", start, 0, 0, failed);
+		}
+	}
+
+	private void record(String operation, long start, long bytesIn, long bytesOut, boolean failed)
+	{
+		sink.record(operation, System.nanoTime() - start, bytesIn, bytesOut, failed);
+	}
+
+	private static long length(String contents)
+	{
+		return contents == null ? 0 : Utf8.encodedLength(contents);
+	}
+
+	/**
+	 * Counts the bytes an adapter takes from a stream. File streams are not wrapped, so adapters can still hand
+	 * their channel to the kernel; their bytes are counted from the channel position instead.
+	 */
+	private static class StreamCounter
+	{
+		final InputStream stream;
+		private final FileChannel channel;
+		private final long position;
+
+		StreamCounter(InputStream contents)
+		{
+			FileChannel channel = null;
+			long position = 0;
+			if (contents instanceof FileInputStream) {
+				try {
+					channel = ((FileInputStream) contents).getChannel();
+					position = channel.position();
+				} catch (IOException e) {
+					channel = null;
+				}
+			}
+			this.channel = channel;
+			this.position = position;
+			this.stream = channel != null || contents == null ? contents : new CountingInputStream(contents);
+		}
+
+		long count()
+		{
+			if (stream instanceof CountingInputStream) return ((CountingInputStream) stream).getCount();
+			if (channel == null) return 0;
+			try {
+				return channel.isOpen() ? channel.position() - position : 0;
+			} catch (IOException e) {
+				return 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records operations as Java Flight Recorder events. Only loaded through {@link Events} when jdk.jfr is available.
+ *
+ * @author Zeger Hoogeboom
+ */
+class JfrEventRecorder implements EventRecorder
+{
+	public Event begin(String layer, String operation, String path)
+	{
+		OperationEvent event = new OperationEvent();
+		if (! event.isEnabled()) return null;
+		event.layer = layer;
+		event.operation = operation;
+		event.path = path;
+		event.begin();
+		return event;
+	}
+
+	@Name("com.flysystem.Operation")
+	@Label("Flysystem Operation")
+	@Category({"Flysystem"})
+	@Description("A filesystem operation")
+	static class OperationEvent extends jdk.jfr.Event implements EventRecorder.Event
+	{
+		@Label("Layer")
+		String layer;
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Path")
+		String path;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Entries")
+		long entries;
+
+		public void end(long bytes, long entries)
+		{
+			this.bytes = bytes;
+			this.entries = entries;
+			commit();
+		}
+	}
+}
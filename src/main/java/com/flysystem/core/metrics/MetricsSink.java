@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+/**
+ * Receives a measurement for every operation an {@link InstrumentedAdapter} runs.
+ * Called on the thread that ran the operation, so implementations should be quick and thread safe.
+ *
+ * @author Zeger Hoogeboom
+ */
+public interface MetricsSink
+{
+	/**
+	 * @param operation The adapter method, like "read" or "writeStream".
+	 * @param nanos     How long the operation took.
+	 * @param bytesIn   Bytes sent to the adapter.
+	 * @param bytesOut  Bytes returned by the adapter.
+	 * @param failed    Whether the operation threw an exception.
+	 */
+	void record(String operation, long nanos, long bytesIn, long bytesOut, boolean failed);
+}
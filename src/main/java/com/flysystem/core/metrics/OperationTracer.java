@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs filesystem operations that take longer than a threshold, and the timeline of a sample of operations:
+ * every call made to the adapter, including the existence checks that run before the operation itself.
+ * Slow operations are logged as warnings and sampled timelines as info, through java.util.logging.
+ * <p>
+ * The tracer sees operations as an {@link EventRecorder}, passing them on to {@link Events} as well,
+ * and the adapter calls as the {@link MetricsSink} of an {@link InstrumentedAdapter}.
+ * See {@link com.flysystem.core.FilesystemImpl#SLOW_OPERATION_THRESHOLD} and
+ * {@link com.flysystem.core.FilesystemImpl#TRACE_SAMPLE_RATE} to enable it. Like events, operations that throw
+ * are not logged.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class OperationTracer implements EventRecorder, MetricsSink
+{
+	private static final Logger logger = Logger.getLogger(OperationTracer.class.getName());
+
+	private final String adapterName;
+	private final long threshold;
+	private final int sampleRate;
+	private final ThreadLocal<Trace> current = new ThreadLocal<>();
+
+	/**
+	 * @param adapterName     The adapter to name in the log.
+	 * @param thresholdMillis Log operations that take at least this long, or none when 0.
+	 * @param sampleRate      Log the timeline of 1 in this many operations, or none when 0.
+	 */
+	public OperationTracer(String adapterName, long thresholdMillis, int sampleRate)
+	{
+		this.adapterName = adapterName;
+		this.threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Start tracing an operation on this thread. Always returns an event, which has to be ended to log the operation.
+	 */
+	public Event begin(String layer, String operation, String path)
+	{
+		boolean sampled = sampleRate > 0 && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+		Trace trace = new Trace(operation, path, sampled, Events.begin(layer, operation, path));
+		// replaces the trace of an operation that threw, which was never ended
+		current.set(trace);
+		return trace;
+	}
+
+	/**
+	 * Add an adapter call to the timeline of the operation running on this thread, if it is sampled.
+	 */
+	public void record(String operation, long nanos, long bytesIn, long bytesOut, boolean failed)
+	{
+		Trace trace = current.get();
+		if (trace != null && trace.timeline != null) trace.step(operation, nanos, bytesIn + bytesOut, failed);
+	}
+
+	private static String millis(long nanos)
+	{
+		return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+	}
+
+	private class Trace implements Event
+	{
+		private final String operation;
+		private final String path;
+		private final Event event;
+		private final long start = System.nanoTime();
+		private final StringBuilder timeline;
+
+		Trace(String operation, String path, boolean sampled, Event event)
+		{
+			this.operation = operation;
+			this.path = path;
+			this.event = event;
+			this.timeline = sampled ? new StringBuilder() : null;
+		}
+
+		void step(String call, long nanos, long bytes, boolean failed)
+		{
+			long offset = System.nanoTime() - nanos - start;
+			timeline.append("\n  +").append(millis(offset)).append(' ').append(call).append(' ').append(millis(nanos));
+			if (bytes > 0) timeline.append(", ").append(bytes).append(" bytes");
+			if (failed) timeline.append(", failed");
+		}
+
+		public void end(long bytes, long entries)
+		{
+			long elapsed = System.nanoTime() - start;
+			if (current.get() == this) current.remove();
+			Events.end(event, bytes, entries);
+
+			boolean slow = threshold > 0 && elapsed >= threshold;
+			if (! slow && timeline == null) return;
+			Level level = slow ? Level.WARNING : Level.INFO;
+			if (! logger.isLoggable(level)) return;
+
+			StringBuilder message = new StringBuilder(slow ? "Slow " : "Sampled ")
+					.append(operation).append(' ').append(path).append(" on ").append(adapterName)
+					.append(": ").append(millis(elapsed)).append(", ").append(bytes).append(" bytes");
+			if (timeline != null) message.append(timeline);
+			logger.log(level, message.toString());
+		}
+	}
+}
@@ -24,7 +24,8 @@ package com.flysystem.core.util;
 
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.adapter.local.FileMetadataConverter;
-import net.sf.jmimemagic.*;
+import com.flysystem.core.util.mime.ChainedMimeTypeDetector;
+import com.flysystem.core.util.mime.MimeTypeDetector;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.File;
@@ -34,15 +35,110 @@ import java.io.File;
  */
 public class PathUtil
 {
+	private static final char SEPARATOR = File.separatorChar;
+
 	/**
 	 * Normalize path.
 	 *
-	 * @return string
+	 * Leading separators are stripped, both / and \ are accepted as separator, duplicate separators and "."
+	 * segments are dropped and ".." segments are resolved. The result uses the system separator and has no
+	 * trailing separator. A path that already is normal is returned as is, without allocating.
+	 *
+	 * @return string normalized path, or null when ".." climbs above the root
 	 */
 	public static String normalizePath(String path)
 	{
-		path = path.replaceAll("^[^[/\\\\]]*[/\\\\]", ""); //replace all / and \ at the start of the string
-		return FilenameUtils.normalizeNoEndSeparator(path);
+		int length = path.length();
+		int start = 0;
+		while (start < length && isSeparator(path.charAt(start))) {
+			start++;
+		}
+		if (hasPrefix(path, start)) {
+			// drive letters and ~user prefixes keep the commons-io semantics
+			return FilenameUtils.normalizeNoEndSeparator(path.substring(start));
+		}
+		if (isNormal(path, start)) {
+			return start == 0 ? path : path.substring(start);
+		}
+		return normalizeSegments(path, start);
+	}
+
+	private static boolean isSeparator(char c)
+	{
+		return c == '/' || c == '\\';
+	}
+
+	private static boolean hasPrefix(String path, int start)
+	{
+		int length = path.length() - start;
+		if (length == 0) {
+			return false;
+		}
+		char first = path.charAt(start);
+		return first == '~' || first == ':' || (length > 1 && path.charAt(start + 1) == ':');
+	}
+
+	private static boolean isNormal(String path, int start)
+	{
+		int length = path.length();
+		int segment = start;
+		for (int i = start; i <= length; i++) {
+			if (i < length) {
+				char c = path.charAt(i);
+				if (! isSeparator(c)) {
+					continue;
+				}
+				if (c != SEPARATOR || i == length - 1) {
+					return false;
+				}
+			}
+			if (isDotSegment(path, segment, i) || (i == segment && i < length)) {
+				return false;
+			}
+			segment = i + 1;
+		}
+		return true;
+	}
+
+	private static boolean isDotSegment(String path, int from, int to)
+	{
+		int length = to - from;
+		return (length == 1 && path.charAt(from) == '.')
+				|| (length == 2 && path.charAt(from) == '.' && path.charAt(from + 1) == '.');
+	}
+
+	private static String normalizeSegments(String path, int start)
+	{
+		int length = path.length();
+		char[] result = new char[length - start];
+		int position = 0;
+		int segment = start;
+		for (int i = start; i <= length; i++) {
+			if (i < length && ! isSeparator(path.charAt(i))) {
+				continue;
+			}
+			int segmentLength = i - segment;
+			if (segmentLength == 0 || (segmentLength == 1 && path.charAt(segment) == '.')) {
+				segment = i + 1;
+				continue;
+			}
+			if (isDotSegment(path, segment, i)) {
+				if (position == 0) {
+					return null;
+				}
+				do {
+					position--;
+				} while (position > 0 && result[position] != SEPARATOR);
+			} else {
+				if (position > 0) {
+					result[position++] = SEPARATOR;
+				}
+				path.getChars(segment, i, result, position);
+				position += segmentLength;
+			}
+			segment = i + 1;
+		}
+		return new String(result, 0, position);
 	}
 
 	/**
@@ -85,14 +181,29 @@ public class PathUtil
 		return normalizeDirname(new File(path).getParent());
 	}
 
+	private static volatile MimeTypeDetector mimeTypeDetector = ChainedMimeTypeDetector.createDefault();
+
+	public static MimeTypeDetector getMimeTypeDetector()
+	{
+		return mimeTypeDetector;
+	}
+
+	/**
+	 * Replace the default mimetype detection engine.
+	 */
+	public static void setMimeTypeDetector(MimeTypeDetector detector)
+	{
+		mimeTypeDetector = detector;
+	}
+
 	public static String guessMimeType(String path)
 	{
-		MagicMatch match = null;
-		try {
-			match = Magic.getMagicMatch(new File(path), true);
-		} catch (MagicParseException | MagicMatchNotFoundException | MagicException e) {
-			e.printStackTrace();
-		}
-		return match != null ? match.getMimeType() : null;
+		File file = new File(path);
+		return guessMimeType(path, file.length(), file.lastModified());
+	}
+
+	public static String guessMimeType(String path, long size, long timestamp)
+	{
+		return mimeTypeDetector.detect(path, size, timestamp);
 	}
 }
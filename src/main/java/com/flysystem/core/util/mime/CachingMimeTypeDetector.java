@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.util.mime;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Remembers detections per path, size and modification time, so an unchanged file is only inspected once.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class CachingMimeTypeDetector implements MimeTypeDetector
+{
+	public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+	private final MimeTypeDetector detector;
+	private final Cache<Key, Optional<String>> detections;
+
+	public CachingMimeTypeDetector(MimeTypeDetector detector)
+	{
+		this(detector, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public CachingMimeTypeDetector(MimeTypeDetector detector, long maximumSize)
+	{
+		this.detector = detector;
+		this.detections = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+	}
+
+	public String detect(String path, long size, long timestamp)
+	{
+		Key key = new Key(path, size, timestamp);
+		Optional<String> detected = detections.getIfPresent(key);
+		if (detected == null) {
+			detected = Optional.fromNullable(detector.detect(path, size, timestamp));
+			detections.put(key, detected);
+		}
+		return detected.orNull();
+	}
+
+	private static class Key
+	{
+		private final String path;
+		private final long size;
+		private final long timestamp;
+
+		Key(String path, long size, long timestamp)
+		{
+			this.path = path;
+			this.size = size;
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o) return true;
+			if (! (o instanceof Key)) return false;
+
+			Key key = (Key) o;
+			return size == key.size && timestamp == key.timestamp && path.equals(key.path);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = path.hashCode();
+			result = 31 * result + (int) (size ^ (size >>> 32));
+			result = 31 * result + (int) (timestamp ^ (timestamp >>> 32));
+			return result;
+		}
+	}
+}
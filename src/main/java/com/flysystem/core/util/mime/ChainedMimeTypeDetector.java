@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.util.mime;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Asks a list of detectors in order and returns the first mimetype found.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class ChainedMimeTypeDetector implements MimeTypeDetector
+{
+	private final List<MimeTypeDetector> detectors;
+
+	public ChainedMimeTypeDetector(MimeTypeDetector... detectors)
+	{
+		this.detectors = Arrays.asList(detectors);
+	}
+
+	/**
+	 * The default engine: the extension table first, then a cached content sniff.
+	 */
+	public static ChainedMimeTypeDetector createDefault()
+	{
+		return new ChainedMimeTypeDetector(
+				new ExtensionMimeTypeDetector(),
+				new CachingMimeTypeDetector(new MagicMimeTypeDetector()));
+	}
+
+	public String detect(String path, long size, long timestamp)
+	{
+		for (MimeTypeDetector detector : detectors) {
+			String mimetype = detector.detect(path, size, timestamp);
+			if (mimetype != null) return mimetype;
+		}
+		return null;
+	}
+}
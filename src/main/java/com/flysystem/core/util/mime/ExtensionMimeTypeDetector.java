@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.util.mime;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Looks up the mimetype by file extension in an immutable sorted table, without touching the file.
+ * The lookup is a binary search that compares the extension in place, so it does not allocate.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class ExtensionMimeTypeDetector implements MimeTypeDetector
+{
+	private static final String[][] DEFAULTS = {
+			{"7z", "application/x-7z-compressed"},
+			{"aac", "audio/aac"},
+			{"avi", "video/x-msvideo"},
+			{"bin", "application/octet-stream"},
+			{"bmp", "image/bmp"},
+			{"bz2", "application/x-bzip2"},
+			{"css", "text/css"},
+			{"csv", "text/csv"},
+			{"doc", "application/msword"},
+			{"docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"},
+			{"eot", "application/vnd.ms-fontobject"},
+			{"epub", "application/epub+zip"},
+			{"flac", "audio/flac"},
+			{"gif", "image/gif"},
+			{"gz", "application/gzip"},
+			{"htm", "text/html"},
+			{"html", "text/html"},
+			{"ico", "image/x-icon"},
+			{"jar", "application/java-archive"},
+			{"jpeg", "image/jpeg"},
+			{"jpg", "image/jpeg"},
+			{"js", "application/javascript"},
+			{"json", "application/json"},
+			{"m4a", "audio/mp4"},
+			{"md", "text/markdown"},
+			{"mkv", "video/x-matroska"},
+			{"mov", "video/quicktime"},
+			{"mp3", "audio/mpeg"},
+			{"mp4", "video/mp4"},
+			{"mpeg", "video/mpeg"},
+			{"odp", "application/vnd.oasis.opendocument.presentation"},
+			{"ods", "application/vnd.oasis.opendocument.spreadsheet"},
+			{"odt", "application/vnd.oasis.opendocument.text"},
+			{"oga", "audio/ogg"},
+			{"ogg", "audio/ogg"},
+			{"ogv", "video/ogg"},
+			{"otf", "font/otf"},
+			{"pdf", "application/pdf"},
+			{"png", "image/png"},
+			{"ppt", "application/vnd.ms-powerpoint"},
+			{"pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation"},
+			{"rar", "application/vnd.rar"},
+			{"rtf", "application/rtf"},
+			{"stl", "model/stl"},
+			{"svg", "image/svg+xml"},
+			{"tar", "application/x-tar"},
+			{"tif", "image/tiff"},
+			{"tiff", "image/tiff"},
+			{"ttf", "font/ttf"},
+			{"txt", "text/plain"},
+			{"wav", "audio/wav"},
+			{"weba", "audio/webm"},
+			{"webm", "video/webm"},
+			{"webp", "image/webp"},
+			{"woff", "font/woff"},
+			{"woff2", "font/woff2"},
+			{"xhtml", "application/xhtml+xml"},
+			{"xls", "application/vnd.ms-excel"},
+			{"xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"},
+			{"xml", "application/xml"},
+			{"yaml", "application/x-yaml"},
+			{"yml", "application/x-yaml"},
+			{"zip", "application/zip"},
+	};
+
+	private final String[] extensions;
+	private final String[] mimetypes;
+
+	public ExtensionMimeTypeDetector()
+	{
+		this(defaults());
+	}
+
+	/**
+	 * @param mimetypes Mimetypes keyed by lowercase extension, without the dot.
+	 */
+	public ExtensionMimeTypeDetector(Map<String, String> mimetypes)
+	{
+		TreeMap<String, String> sorted = new TreeMap<>(mimetypes);
+		this.extensions = sorted.keySet().toArray(new String[sorted.size()]);
+		this.mimetypes = sorted.values().toArray(new String[sorted.size()]);
+	}
+
+	public static Map<String, String> defaults()
+	{
+		Map<String, String> defaults = new TreeMap<>();
+		for (String[] entry : DEFAULTS) {
+			defaults.put(entry[0], entry[1]);
+		}
+		return defaults;
+	}
+
+	public String detect(String path, long size, long timestamp)
+	{
+		return detect(path);
+	}
+
+	public String detect(String path)
+	{
+		int start = extensionStart(path);
+		if (start < 0) return null;
+
+		int low = 0;
+		int high = extensions.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compare(extensions[middle], path, start);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return mimetypes[middle];
+			}
+		}
+		return null;
+	}
+
+	private static int extensionStart(String path)
+	{
+		for (int i = path.length() - 1; i >= 0; i--) {
+			char c = path.charAt(i);
+			if (c == '.') return i + 1 < path.length() ? i + 1 : -1;
+			if (c == '/' || c == '\\') return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Compare a lowercase table entry with the extension starting at an offset in the path, ignoring ASCII case.
+	 */
+	private static int compare(String extension, String path, int start)
+	{
+		int length = path.length() - start;
+		int limit = Math.min(extension.length(), length);
+		for (int i = 0; i < limit; i++) {
+			char c = path.charAt(start + i);
+			if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+			int difference = extension.charAt(i) - c;
+			if (difference != 0) return difference;
+		}
+		return extension.length() - length;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core.util.mime;
+
+import net.sf.jmimemagic.Magic;
+import net.sf.jmimemagic.MagicException;
+import net.sf.jmimemagic.MagicMatch;
+import net.sf.jmimemagic.MagicMatchNotFoundException;
+import net.sf.jmimemagic.MagicParseException;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Sniffs the mimetype from the first bytes of a file with jmimemagic.
+ * Only a bounded prefix is read, through a buffer that is reused per thread.
+ *
+ * @author Zeger Hoogeboom
+ */
+public class MagicMimeTypeDetector implements MimeTypeDetector
+{
+	public static final int DEFAULT_PREFIX_LENGTH = 4096;
+
+	private final ThreadLocal<byte[]> buffers;
+
+	public MagicMimeTypeDetector()
+	{
+		this(DEFAULT_PREFIX_LENGTH);
+	}
+
+	public MagicMimeTypeDetector(final int prefixLength)
+	{
+		this.buffers = new ThreadLocal<byte[]>()
+		{
+			@Override
+			protected byte[] initialValue()
+			{
+				return new byte[prefixLength];
+			}
+		};
+	}
+
+	public String detect(String path, long size, long timestamp)
+	{
+		if (size == 0) return null;
+		byte[] buffer = buffers.get();
+		int read;
+		try (InputStream input = new FileInputStream(path)) {
+			read = fill(input, buffer);
+		} catch (IOException e) {
+			return null;
+		}
+
+		// jmimemagic takes the whole array, so only a file shorter than the buffer needs a copy of its own length
+		byte[] prefix = read == buffer.length ? buffer : Arrays.copyOf(buffer, read);
+		try {
+			MagicMatch match = Magic.getMagicMatch(prefix, true);
+			return match != null ? match.getMimeType() : null;
+		} catch (MagicParseException | MagicMatchNotFoundException | MagicException e) {
+			return null;
+		}
+	}
+
+	private static int fill(InputStream input, byte[] buffer) throws IOException
+	{
+		int offset = 0;
+		while (offset < buffer.length) {
+			int read = input.read(buffer, offset, buffer.length - offset);
+			if (read == -1) break;
+			offset += read;
+		}
+		return offset;
+	}
+}
@@ -23,25 +23,30 @@
 package com.flysystem.cache;
 
 import com.flysystem.cache.stubs.AbstractCacheStub;
+import com.flysystem.core.Config;
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.MetadataWrapper;
 import com.flysystem.core.Visibility;
-import com.flysystem.core.adapter.local.FileMetadataConverter;
 import com.flysystem.core.cache.storage.AbstractCache;
+import com.flysystem.core.cache.storage.Memory;
+import com.flysystem.core.exception.FlysystemGenericException;
+import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
-import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.google.common.cache.CacheStats;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
-import com.tngtech.java.junit.dataprovider.UseDataProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 
-import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -55,7 +60,6 @@ public class AbstractCacheTest
 	AbstractCache cache;
 	Cache<String, MetadataWrapper> cacheMock;
 	Cache<String, Object> completedMock;
-	FileMetadataConverter converterMock;
 	String file = "example.txt";
 	static String dir = "test";
 	String contents = "contents";
@@ -68,11 +72,9 @@ public class AbstractCacheTest
 	{
 		cacheMock = mock(Cache.class);
 		completedMock = mock(Cache.class);
-		converterMock = mock(FileMetadataConverter.class);
 		cache = new AbstractCacheStub(true,
 				cacheMock,
-				completedMock,
-				converterMock);
+				completedMock);
 		//doesn't have to be mocked since it's a data structure
 		fileMetadata = new FileMetadata(file, 8L, Visibility.PUBLIC, "text/plain", 0L, "file");
 		wrapper = new MetadataWrapper(fileMetadata, contents);
@@ -85,23 +87,163 @@ public class AbstractCacheTest
 		assertTrue(cache.isAutosave());
 		cache = new AbstractCacheStub(false);
 		assertFalse(cache.isAutosave());
-		new AbstractCacheStub(true, cacheMock, completedMock, converterMock); //assert doesn't throw exception
+		new AbstractCacheStub(true, cacheMock, completedMock); //assert doesn't throw exception
 	}
 
     @Test
 	public void updateObject()
     {
-	    when(converterMock.fromPath(file, contents)).thenReturn(wrapper);
 	    cache.updateObject(file, contents);
-	    verify(converterMock).fromPath(file, contents);
+	    MetadataWrapper stored = capturePut(file);
+	    assertEquals(true, stored.getObject());
+	    assertEquals("file", stored.getFileMetadata().getType());
+	    assertEquals(contents, cache.read(file));
     }
 
 	@Test
 	public void updateObjectWithAutoSave()
 	{
-		when(converterMock.fromPath(file, contents)).thenReturn(wrapper);
 		cache.updateObject(file, contents, true);
-		verify(converterMock).fromPath(file, contents);
+		assertEquals(contents, cache.read(file));
+	}
+
+	@Test
+	public void updateObjectMergesFields()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject(file, contents);
+		cache.updateObject(file, Collections.singletonMap("size", 8L));
+		cache.updateObject(file, Collections.singletonMap("mimetype", "text/plain"));
+		cache.updateObject(file, Visibility.PRIVATE);
+		assertEquals(contents, cache.read(file));
+		assertEquals(Long.valueOf(8), cache.getSize(file));
+		assertEquals("text/plain", cache.getMimetype(file));
+		assertEquals(Visibility.PRIVATE, cache.getVisibility(file));
+		assertNull(cache.getTimestamp(file));
+	}
+
+	@Test
+	public void updateObjectWithMetadataKeepsContentsOfSameRevision()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject(file, contents);
+		cache.updateObject(file, Collections.singletonMap("size", 8L));
+		cache.updateObject(file, Collections.singletonMap("timestamp", 0L));
+		cache.updateObject(file, fileMetadata);
+		assertEquals(contents, cache.read(file));
+
+		cache.updateObject(file, new FileMetadata(file, 9L, Visibility.PUBLIC, "text/plain", 1L, "file"));
+		assertNull(cache.read(file));
+		assertEquals(Long.valueOf(9), cache.getSize(file));
+	}
+
+	@Test
+	public void updateObjectWithMetadataOfSameRevision()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject(file, fileMetadata);
+		cache.updateObject(file, Collections.singletonMap("visibility", Visibility.PRIVATE));
+		FileMetadata refreshed = new FileMetadata(file, 8L, Visibility.PUBLIC, "text/plain", 0L, "file");
+		cache.updateObject(file, refreshed);
+		assertEquals(Visibility.PUBLIC, cache.getVisibility(file));
+		assertEquals(file, cache.getMetadata(file).getPath());
+	}
+
+	@Test
+	public void missHasNoMetadata()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject(file, fileMetadata);
+		cache.storeMiss(file);
+		assertFalse(cache.has(file));
+		assertNull(cache.getMetadata(file));
+		assertNull(cache.getSize(file));
+	}
+
+	@Test
+	public void missIsRemembered()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		assertFalse(cache.isMissing(file));
+		cache.storeMiss(file);
+		assertTrue(cache.isMissing(file));
+		cache.updateObject(file, fileMetadata);
+		assertFalse(cache.isMissing(file));
+	}
+
+	@Test
+	public void foundFileClearsMissingDirectory()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.storeMiss("dir");
+		cache.updateObject("dir/example.txt", contents);
+		assertFalse(cache.isMissing("dir"));
+	}
+
+	@Test
+	public void missExpires() throws InterruptedException
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.EXPIRE_MISS_AFTER_WRITE, 20));
+		cache.storeMiss(file);
+		assertTrue(cache.isMissing(file));
+		Thread.sleep(50);
+		assertFalse(cache.isMissing(file));
+	}
+
+	@Test
+	public void missesAreBoundedApart()
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.MAX_MISSES, 10));
+		cache.updateObject(file, fileMetadata);
+		int remembered = 0;
+		for (int i = 0; i < 100; i++) {
+			cache.storeMiss("missing" + i + ".txt");
+		}
+		for (int i = 0; i < 100; i++) {
+			if (cache.isMissing("missing" + i + ".txt")) remembered++;
+		}
+		assertTrue(remembered <= 10);
+		assertTrue(cache.has(file));
+	}
+
+	@Test
+	public void truncatedListingIsNotComplete()
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.MAX_ENTRIES, 10));
+		List<FileMetadata> contents = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			contents.add(new FileMetadata("dir/" + i + ".txt", 1L, Visibility.PUBLIC, "text/plain", 0L, "file"));
+		}
+		cache.storeContents("dir", contents, false);
+		assertFalse(cache.isComplete("dir", false));
+	}
+
+	@Test
+	public void expiredEntryInvalidatesCompleteListing() throws InterruptedException
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.EXPIRE_AFTER_WRITE, 50));
+		cache.storeContents("dir", Arrays.asList(
+				new FileMetadata("dir/one.txt", 1L, Visibility.PUBLIC, "text/plain", 0L, "file"),
+				new FileMetadata("dir/two.txt", 1L, Visibility.PUBLIC, "text/plain", 0L, "file")), false);
+		assertEquals(2, cache.listContents("dir", false).size());
+		Thread.sleep(100);
+		assertNull(cache.listContents("dir", false));
+		assertFalse(cache.isComplete("dir", false));
+	}
+
+	@Test
+	public void statsCountHitsAndEvictions()
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.MAX_ENTRIES, 1));
+		cache.updateObject("a.txt", fileMetadata);
+		cache.updateObject("b.txt", fileMetadata);
+		cache.getMetadata("b.txt");
+		cache.getMetadata("c.txt");
+		CacheStats metadata = cache.stats().get("metadata");
+		assertEquals(1, metadata.evictionCount());
+		assertTrue(metadata.hitCount() > 0);
+		assertTrue(metadata.missCount() > 0);
+		assertNotNull(cache.stats().get("misses"));
 	}
 
 	@Test
@@ -142,13 +284,11 @@ public class AbstractCacheTest
 	{
 		FileMetadata metadata = this.fileMetadata;
 		metadata.setPath(dir);
-		MetadataWrapper wrapper = new MetadataWrapper(metadata, dir);
 
-		when(converterMock.fromPath(dir, metadata)).thenReturn(wrapper);
 		cache.storeContents(dir, Arrays.asList(metadata), false);
 
 		verify(completedMock).put(dir, true);
-		verify(cacheMock).put(dir, wrapper);
+		assertEquals(metadata.getSize(), capturePut(dir).getFileMetadata().getSize());
 	}
 
 	@Test
@@ -163,10 +303,14 @@ public class AbstractCacheTest
 	{
 		String newFile = "newfile.txt";
 		when(cacheMock.getIfPresent(file)).thenReturn(wrapper);
-		when(converterMock.fromPath(newFile, wrapper.getObject())).thenReturn(wrapper);
+		cache.updateObject(file, fileMetadata);
+		reset(cacheMock);
+		when(cacheMock.getIfPresent(file)).thenReturn(wrapper);
 		cache.rename(file, newFile);
 		verify(cacheMock).invalidate(file);
-		verify(cacheMock).put(newFile, wrapper);
+		MetadataWrapper renamed = capturePut(newFile);
+		assertEquals(newFile, renamed.getFileMetadata().getPath());
+		assertEquals(contents, renamed.getObject());
 	}
 
 	@Test
@@ -174,7 +318,8 @@ public class AbstractCacheTest
 	{
 		when(cacheMock.getIfPresent(file)).thenReturn(null);
 		cache.rename(file, "new.txt");
-		verify(cacheMock, never()).invalidate(any());
+		verify(cacheMock, never()).invalidate(file);
+		verify(cacheMock).invalidate("new.txt");
 		verify(cacheMock, never()).put(Matchers.<String>any(), Matchers.<MetadataWrapper>any());
 	}
 
@@ -186,43 +331,45 @@ public class AbstractCacheTest
 		verify(cacheMock, times(1)).getIfPresent(any());
 	}
 
+	@Test
+	public void uncachedSourceInvalidatesTargetListings()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.setComplete("", true);
+		cache.setComplete("dir", false);
+		cache.rename("missing.txt", "dir/new.txt");
+		assertFalse(cache.isComplete("dir", false));
+		assertFalse(cache.isComplete("", true));
+		cache.setComplete("dir", false);
+		cache.copy("missing.txt", "dir/copy.txt");
+		assertFalse(cache.isComplete("dir", false));
+	}
+
 	@Test
 	public void copy()
 	{
 		String newFile = "new.txt";
 		when(cacheMock.getIfPresent(file)).thenReturn(wrapper);
-		when(converterMock.fromPath(newFile, wrapper.getObject())).thenReturn(wrapper);
 		cache.copy(file, newFile);
-		verify(cacheMock).put(newFile, wrapper);
+		MetadataWrapper copied = capturePut(newFile);
+		assertEquals(newFile, copied.getFileMetadata().getPath());
+		assertEquals(file, wrapper.getFileMetadata().getPath());
+		assertEquals(contents, copied.getObject());
 	}
 
 	@Test
 	public void delete()
 	{
-		MetadataWrapper expected = this.wrapper;
-		expected.setObject(false);
-		when(converterMock.fromPath(file, false)).thenReturn(expected);
+		when(cacheMock.getIfPresent(file)).thenReturn(wrapper);
 		cache.delete(file);
-		verify(cacheMock).put(file, expected);
-	}
-
-	@DataProvider
-	public static Object[][] dataProviderDirectoryEntrySet() {
-		return new Object[][] {
-				{
-					new HashSet<Map.Entry<String, MetadataWrapper>>() {{
-						add(new AbstractMap.SimpleEntry<>(dir, new MetadataWrapper(new FileMetadata(dir), "something")));
-					}}
-				}
-		};
+		verify(cacheMock).invalidate(file);
+		verify(cacheMock, never()).put(eq(file), Matchers.<MetadataWrapper>any());
+		assertTrue(cache.isMissing(file));
 	}
 
 	@Test
-	@UseDataProvider("dataProviderDirectoryEntrySet")
-	public void deleteDirWasCached(HashSet<Map.Entry<String, MetadataWrapper>> entries)
+	public void deleteDirWasCached()
 	{
-		when(cacheMock.asMap()).thenReturn(mock(ConcurrentMap.class));
-		when(cacheMock.asMap().entrySet()).thenReturn(entries);
 		when(completedMock.getIfPresent(dir)).thenReturn(wrapper);
 
 		cache.deleteDir(dir);
@@ -231,11 +378,8 @@ public class AbstractCacheTest
 	}
 
 	@Test
-	@UseDataProvider("dataProviderDirectoryEntrySet")
-	public void deleteDirNotCached(HashSet<Map.Entry<String, MetadataWrapper>> entries)
+	public void deleteDirNotCached()
 	{
-		when(cacheMock.asMap()).thenReturn(mock(ConcurrentMap.class));
-		when(cacheMock.asMap().entrySet()).thenReturn(entries);
 		when(completedMock.getIfPresent(dir)).thenReturn(null);
 
 		cache.deleteDir(dir);
@@ -243,11 +387,165 @@ public class AbstractCacheTest
 		verify(completedMock, never()).invalidate(dir);
 	}
 
+	@Test
+	public void deleteDirRemovesSubtreeOnly()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject("foo/one.txt", contents);
+		cache.updateObject("foo/bar/two.txt", contents);
+		cache.updateObject("foobar/three.txt", contents);
+		cache.updateObject("foobar.txt", contents);
+
+		cache.deleteDir("foo");
+
+		assertFalse(cache.has("foo/one.txt"));
+		assertFalse(cache.has("foo/bar/two.txt"));
+		assertNull(cache.read("foo/bar/two.txt"));
+		assertTrue(cache.has("foobar/three.txt"));
+		assertTrue(cache.has("foobar.txt"));
+		assertTrue(cache.listContents("foo", true).isEmpty());
+		assertEquals(2, cache.listContents("", true).size());
+	}
+
+	@Test
+	public void renameDetectsMimetypeAgain()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		FileMetadata metadata = new FileMetadata("a.txt", 4L, null, null, 1000L, "file");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				return "text/plain";
+			}
+		});
+		cache.updateObject("a.txt", metadata);
+
+		cache.rename("a.txt", "a.png");
+
+		assertNull(cache.getMimetype("a.png"));
+		assertNull(cache.getMetadata("a.png"));
+		assertEquals(Long.valueOf(4), cache.getSize("a.png"));
+	}
+
+	@Test
+	public void metadataForAnotherPathWithoutMimetypeIsPartial()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		FileMetadata metadata = new FileMetadata("/root/a.txt", 4L, null, null, 1000L, "file");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				return "text/plain";
+			}
+		});
+		cache.updateObject("a.txt", metadata);
+
+		assertNull(cache.getMetadata("a.txt"));
+		assertEquals(Long.valueOf(4), cache.getSize("a.txt"));
+	}
+
+	@Test
+	public void renameDirectory()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject("foo/one.txt", contents);
+		cache.updateObject("foo/bar/two.txt", fileMetadata);
+		cache.updateObject("foobar.txt", contents);
+		cache.setComplete("foo/bar", false);
+
+		cache.rename("foo", "baz");
+
+		assertFalse(cache.has("foo/one.txt"));
+		assertFalse(cache.isComplete("foo/bar", false));
+		assertEquals(contents, cache.read("baz/one.txt"));
+		assertEquals("baz/bar/two.txt", cache.getMetadata("baz/bar/two.txt").getPath());
+		assertEquals(Long.valueOf(8), cache.getSize("baz/bar/two.txt"));
+		assertEquals(2, cache.listContents("baz", true).size());
+		assertTrue(cache.has("foobar.txt"));
+	}
+
 	@Test
 	public void read()
 	{
-		when(cacheMock.getIfPresent(file)).thenReturn(wrapper);
-		assertEquals(wrapper.getObject(), cache.read(file));
+		cache.updateObject(file, contents);
+		assertEquals(contents, cache.read(file));
+	}
+
+	@Test
+	public void listContents()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.storeContents("dir", Arrays.asList(
+				new FileMetadata("dir/one.txt", 1L, Visibility.PUBLIC, "text/plain", 0L, "file"),
+				new FileMetadata("dir/sub/two.txt", 2L, Visibility.PUBLIC, "text/plain", 0L, "file")), true);
+		cache.updateObject("other.txt", contents);
+
+		List<FileMetadata> shallow = cache.listContents("dir", false);
+		assertEquals(1, shallow.size());
+		assertEquals("dir/one.txt", shallow.get(0).getPath());
+
+		List<FileMetadata> deep = cache.listContents("dir", true);
+		assertEquals(2, deep.size());
+		assertTrue(deep.contains(new FileMetadata("dir/sub/two.txt")));
+		assertEquals(3, cache.listContents("", true).size());
+	}
+
+	@Test
+	public void listContentsSkipsRemovedEntries()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject("dir/one.txt", contents);
+		cache.updateObject("dir/two.txt", contents);
+		cache.delete("dir/one.txt");
+		cache.rename("dir/two.txt", "dir/sub/three.txt");
+
+		List<FileMetadata> listing = cache.listContents("dir", true);
+		assertEquals(1, listing.size());
+		assertEquals("dir/sub/three.txt", listing.get(0).getPath());
+		assertTrue(cache.listContents("dir", false).isEmpty());
+	}
+
+	@Test
+	public void renameMovesContents()
+	{
+		AbstractCache cache = new AbstractCacheStub(false);
+		cache.updateObject(file, contents);
+		cache.rename(file, "new.txt");
+		assertNull(cache.read(file));
+		assertEquals(contents, cache.read("new.txt"));
+	}
+
+	@Test
+	public void contentsAreBoundedByWeight()
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.MAX_CONTENT_WEIGHT, 10));
+		cache.updateObject(file, "0123456789abcdef");
+		assertNull(cache.read(file));
+		assertTrue(cache.has(file));
+	}
+
+	@Test
+	public void evictionMarksListingIncomplete()
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.MAX_ENTRIES, 1));
+		cache.updateObject("dir/one.txt", fileMetadata);
+		cache.setComplete("dir", false);
+		cache.setComplete("", true);
+		cache.updateObject("dir/two.txt", fileMetadata);
+		assertFalse(cache.isComplete("dir", false));
+		assertFalse(cache.isComplete("", true));
+	}
+
+	@Test
+	public void entriesExpireAfterWrite() throws InterruptedException
+	{
+		AbstractCache cache = new AbstractCacheStub(false, new Config().set(AbstractCache.EXPIRE_AFTER_WRITE, 1));
+		cache.updateObject(file, contents);
+		Thread.sleep(10);
+		assertFalse(cache.has(file));
+		assertNull(cache.read(file));
 	}
 
 	@Test
@@ -336,4 +634,121 @@ public class AbstractCacheTest
 		cache.setAutosave(false);
 		assertFalse(cache.isAutosave());
 	}
+
+	@Test
+	public void autosaveGathersChanges()
+	{
+		CountingCache cache = new CountingCache(true, new Config().set(AbstractCache.AUTOSAVE_DELAY, 60000));
+		cache.updateObject("a.txt", contents, true);
+		cache.updateObject("b.txt", contents, true);
+		cache.storeMiss("c.txt");
+		assertEquals(0, cache.saves.get());
+		cache.close();
+		assertEquals(1, cache.saves.get());
+		cache.close();
+		assertEquals(1, cache.saves.get());
+	}
+
+	@Test
+	public void autosaveAfterMaxPending() throws InterruptedException
+	{
+		CountingCache cache = new CountingCache(true, new Config()
+				.set(AbstractCache.AUTOSAVE_DELAY, 60000)
+				.set(AbstractCache.AUTOSAVE_MAX_PENDING, 3));
+		for (int i = 0; i < 3; i++) {
+			cache.updateObject("file" + i + ".txt", contents, true);
+		}
+		for (int i = 0; i < 200 && cache.saves.get() == 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, cache.saves.get());
+	}
+
+	@Test
+	public void failedAutosaveIsRetried() throws InterruptedException
+	{
+		CountingCache cache = new CountingCache(true, new Config().set(AbstractCache.AUTOSAVE_DELAY, 10))
+		{
+			@Override
+			public void save()
+			{
+				if (saves.incrementAndGet() == 1) throw new FlysystemGenericException("Disk full");
+			}
+		};
+		Logger logger = Logger.getLogger("com.flysystem.core.cache.storage.Autosaver");
+		Level level = logger.getLevel();
+		logger.setLevel(Level.OFF);
+		try {
+			cache.updateObject("a.txt", contents, true);
+			for (int i = 0; i < 200 && cache.saves.get() < 2; i++) {
+				Thread.sleep(10);
+			}
+		} finally {
+			logger.setLevel(level);
+		}
+		assertEquals(2, cache.saves.get());
+		cache.close();
+		assertEquals(2, cache.saves.get());
+	}
+
+	@Test
+	public void autosaveWithoutDelay()
+	{
+		CountingCache cache = new CountingCache(true, new Config().set(AbstractCache.AUTOSAVE_DELAY, 0));
+		cache.updateObject("a.txt", contents, true);
+		cache.updateObject("b.txt", contents, true);
+		assertEquals(2, cache.saves.get());
+	}
+
+	@Test
+	public void closeSavesWithoutAutosave()
+	{
+		CountingCache cache = new CountingCache(false, new Config().set(AbstractCache.AUTOSAVE_DELAY, 0));
+		cache.updateObject("a.txt", contents, true);
+		cache.setComplete("", false);
+		assertEquals(0, cache.saves.get());
+		cache.close();
+		assertEquals(1, cache.saves.get());
+	}
+
+	@Test
+	public void memoryIsNeverSaved()
+	{
+		final AtomicInteger saves = new AtomicInteger();
+		Memory cache = new Memory(true, new Config().set(AbstractCache.AUTOSAVE_DELAY, 0))
+		{
+			@Override
+			public void save()
+			{
+				saves.incrementAndGet();
+			}
+		};
+		cache.updateObject("a.txt", contents, true);
+		cache.setComplete("", false);
+		cache.close();
+		assertEquals(0, saves.get());
+	}
+
+	private static class CountingCache extends AbstractCacheStub
+	{
+		final AtomicInteger saves = new AtomicInteger();
+
+		CountingCache(boolean autosave, Config limits)
+		{
+			super(autosave, limits);
+		}
+
+		@Override
+		public void save()
+		{
+			saves.incrementAndGet();
+		}
+	}
+
+	private MetadataWrapper capturePut(String path)
+	{
+		ArgumentCaptor<MetadataWrapper> captor = ArgumentCaptor.forClass(MetadataWrapper.class);
+		verify(cacheMock).put(eq(path), captor.capture());
+		return captor.getValue();
+	}
 }
@@ -25,10 +25,27 @@ package com.flysystem.cache;
 import com.flysystem.core.cache.Cache;
 import com.flysystem.core.cache.CacheCommands;
 import com.flysystem.core.cache.CachedAdapter;
+import com.flysystem.core.exception.FileNotFoundException;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
 import static org.mockito.Mockito.*;
 
 /**
@@ -86,4 +103,170 @@ public class CacheCommandsTest
 		verify(mockedCache, times(1)).storeMiss(file);
 		verify(mockedCache, never()).updateObject(file, contents, true);
 	}
+
+	@Test
+	public void concurrentMissesShareOneFetch() throws Exception
+	{
+		BlockingCommand command = new BlockingCommand(contents);
+		List<Future<Object>> results = getConcurrently(command, 8);
+		assertEquals(1, command.fetches.get());
+		for (Future<Object> result : results) {
+			assertEquals(contents, result.get());
+		}
+		verify(mockedCache, times(1)).updateObject(file, contents, true);
+	}
+
+	@Test
+	public void concurrentMissesShareException() throws Exception
+	{
+		BlockingCommand command = new BlockingCommand(new FileNotFoundException(file));
+		List<Future<Object>> results = getConcurrently(command, 4);
+		assertEquals(1, command.fetches.get());
+		for (Future<Object> result : results) {
+			try {
+				result.get();
+				fail();
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof FileNotFoundException);
+			}
+		}
+	}
+
+	@Test
+	public void coalescingCanBeDisabled() throws Exception
+	{
+		commands.setCoalescing(false);
+		BlockingCommand command = new BlockingCommand(contents);
+		getConcurrently(command, 4);
+		assertEquals(4, command.fetches.get());
+	}
+
+	@Test
+	public void freshEntryIsNotRefreshed()
+	{
+		commands.setRefreshAfter(60000);
+		when(mockedCommand.fromCache(file)).thenReturn(contents);
+		assertEquals(contents, commands.get(file, mockedCommand));
+		assertEquals(contents, commands.get(file, mockedCommand));
+		verify(mockedCommand, never()).fromFilesystem(file);
+	}
+
+	@Test
+	public void staleEntryIsServedAndRefreshed() throws InterruptedException
+	{
+		commands.setRefreshAfter(20);
+		when(mockedCommand.fromCache(file)).thenReturn(contents);
+		when(mockedCommand.fromFilesystem(file)).thenReturn("refreshed");
+		assertEquals(contents, commands.get(file, mockedCommand));
+		Thread.sleep(40);
+		assertEquals(contents, commands.get(file, mockedCommand));
+		verify(mockedCommand, timeout(2000)).fromFilesystem(file);
+		verify(mockedCache, timeout(2000)).updateObject(file, "refreshed", true);
+	}
+
+	@Test
+	public void writtenEntryIsNotRefreshed() throws InterruptedException
+	{
+		commands.setRefreshAfter(20);
+		commands.setRefreshExecutor(MoreExecutors.directExecutor());
+		when(mockedCommand.fromCache(file)).thenReturn(contents);
+		assertEquals(contents, commands.get(file, mockedCommand));
+		Thread.sleep(40);
+		commands.resetAge(file);
+		assertEquals(contents, commands.get(file, mockedCommand));
+		verify(mockedCommand, never()).fromFilesystem(file);
+	}
+
+	@Test
+	public void expiredEntryIsReadAgain() throws InterruptedException
+	{
+		commands.setRefreshAfter(10);
+		commands.setExpireAfter(20);
+		when(mockedCommand.fromCache(file)).thenReturn(contents);
+		when(mockedCommand.fromFilesystem(file)).thenReturn("refreshed");
+		assertEquals(contents, commands.get(file, mockedCommand));
+		Thread.sleep(40);
+		assertEquals("refreshed", commands.get(file, mockedCommand));
+	}
+
+	@Test
+	public void countsHitsMissesAndLoads()
+	{
+		when(mockedCommand.fromCache(file)).thenReturn(null, contents);
+		when(mockedCommand.fromFilesystem(file)).thenReturn(contents);
+		commands.get(file, mockedCommand);
+		commands.get(file, mockedCommand);
+		CacheStats stats = commands.stats().get(mockedCommand.getClass().getSimpleName());
+		assertEquals(1, stats.hitCount());
+		assertEquals(1, stats.missCount());
+		assertEquals(1, stats.loadSuccessCount());
+		assertEquals(0, stats.loadExceptionCount());
+	}
+
+	/**
+	 * Run the command on a number of threads, and only let the fetch finish once every thread is waiting.
+	 */
+	private List<Future<Object>> getConcurrently(final BlockingCommand command, int threads) throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Thread> started = Collections.synchronizedList(new ArrayList<Thread>());
+		List<Future<Object>> results = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			results.add(executor.submit(new Callable<Object>()
+			{
+				public Object call()
+				{
+					started.add(Thread.currentThread());
+					return commands.get(file, command);
+				}
+			}));
+		}
+		while (! allWaiting(started, threads)) {
+			Thread.sleep(5);
+		}
+		command.release.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		return results;
+	}
+
+	private static boolean allWaiting(List<Thread> threads, int expected)
+	{
+		synchronized (threads) {
+			if (threads.size() < expected) return false;
+			for (Thread thread : threads) {
+				if (thread.getState() != Thread.State.WAITING) return false;
+			}
+		}
+		return true;
+	}
+
+	private static class BlockingCommand implements CacheCommands.GetFromCacheCommand<Object>
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger fetches = new AtomicInteger();
+		final Object result;
+
+		BlockingCommand(Object result)
+		{
+			this.result = result;
+		}
+
+		public Object fromCache(String path)
+		{
+			return null;
+		}
+
+		public Object fromFilesystem(String path)
+		{
+			fetches.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			if (result instanceof RuntimeException) throw (RuntimeException) result;
+			return result;
+		}
+	}
 }
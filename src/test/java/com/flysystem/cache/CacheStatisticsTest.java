@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.cache;
+
+import com.flysystem.core.Adapter;
+import com.flysystem.core.cache.CacheStatistics;
+import com.flysystem.core.cache.CachedAdapter;
+import com.flysystem.core.cache.storage.Memory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class CacheStatisticsTest
+{
+	Adapter mockedAdapter;
+	CachedAdapter cachedAdapter;
+	CacheStatistics statistics;
+	String path = "example.txt";
+
+	@Before
+	public void setUp() throws Exception
+	{
+		mockedAdapter = mock(Adapter.class);
+		cachedAdapter = new CachedAdapter(mockedAdapter, new Memory(false));
+		statistics = new CacheStatistics(cachedAdapter);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		statistics.unregister();
+	}
+
+	@Test
+	public void countsCommands()
+	{
+		when(mockedAdapter.has(path)).thenReturn(true);
+		cachedAdapter.has(path);
+		cachedAdapter.has(path);
+		assertEquals(Long.valueOf(1), statistics.getHitCounts().get("HasCommand"));
+		assertEquals(Long.valueOf(1), statistics.getMissCounts().get("HasCommand"));
+		assertEquals(Long.valueOf(1), statistics.getLoadCounts().get("HasCommand"));
+		assertEquals(0.5, statistics.getHitRates().get("HasCommand"), 0.001);
+		assertTrue(statistics.getHitCounts().containsKey("metadata"));
+	}
+
+	@Test
+	public void registersWithJmx() throws Exception
+	{
+		when(mockedAdapter.has(path)).thenReturn(true);
+		cachedAdapter.has(path);
+		ObjectName name = statistics.register("test");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertTrue(server.isRegistered(name));
+
+		TabularData misses = (TabularData) server.getAttribute(name, "MissCounts");
+		CompositeData row = misses.get(new Object[] {"HasCommand"});
+		assertEquals(1L, row.get("value"));
+
+		statistics.unregister();
+		assertFalse(server.isRegistered(name));
+	}
+}
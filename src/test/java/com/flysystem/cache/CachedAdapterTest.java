@@ -24,21 +24,28 @@ package com.flysystem.cache;
 
 import com.flysystem.core.Adapter;
 import com.flysystem.core.Config;
+import com.flysystem.core.ContentIterator;
+import com.flysystem.core.ContentIterators;
 import com.flysystem.core.FileMetadata;
 import com.flysystem.core.Visibility;
 import com.flysystem.core.cache.Cache;
 import com.flysystem.core.cache.CacheCommands;
 import com.flysystem.core.cache.CachedAdapter;
+import com.flysystem.core.cache.ContentCache;
+import com.flysystem.core.cache.storage.Memory;
 import org.hamcrest.CoreMatchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Matchers;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
@@ -81,6 +88,49 @@ public class CachedAdapterTest
 		assertEquals(contents, cachedAdapter.read(path));
 	}
 
+	@Test
+	public void readFromContentCache()
+	{
+		ContentCache contentCache = mock(ContentCache.class);
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, mockedCache, contentCache);
+		when(contentCache.get(path)).thenReturn(contents);
+		assertEquals(contents, cachedAdapter.read(path));
+		verify(mockedAdapter, never()).read(path);
+	}
+
+	@Test
+	public void readMissStoresInContentCache()
+	{
+		ContentCache contentCache = mock(ContentCache.class);
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, mockedCache, contentCache);
+		when(mockedAdapter.read(path)).thenReturn(contents);
+		assertEquals(contents, cachedAdapter.read(path));
+		verify(contentCache).put(path, contents);
+		verify(mockedCache, never()).updateObject(path, contents, true);
+	}
+
+	@Test
+	public void deleteInvalidatesContentCache()
+	{
+		ContentCache contentCache = mock(ContentCache.class);
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, mockedCache, contentCache);
+		when(mockedAdapter.delete(path)).thenReturn(true);
+		cachedAdapter.delete(path);
+		verify(contentCache).invalidate(path);
+		verify(mockedCache).delete(path);
+	}
+
+	@Test
+	public void renameInvalidatesContentsBelowBothPaths()
+	{
+		ContentCache contentCache = mock(ContentCache.class);
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, mockedCache, contentCache);
+		when(mockedAdapter.rename("from", "to")).thenReturn(true);
+		cachedAdapter.rename("from", "to");
+		verify(contentCache).invalidateDirectory("from");
+		verify(contentCache).invalidateDirectory("to");
+	}
+
 	@Test
 	public void has()
 	{
@@ -88,6 +138,21 @@ public class CachedAdapterTest
 		assertTrue(cachedAdapter.has(path));
 	}
 
+	@Test
+	public void hasRemembersMissUntilWritten()
+	{
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, new Memory(false));
+		when(mockedAdapter.has(path)).thenReturn(false);
+		assertFalse(cachedAdapter.has(path));
+		assertFalse(cachedAdapter.has(path));
+		verify(mockedAdapter, times(1)).has(path);
+
+		when(mockedAdapter.write(path, contents, new Config())).thenReturn(true);
+		cachedAdapter.write(path, contents);
+		assertTrue(cachedAdapter.has(path));
+		verify(mockedAdapter, times(1)).has(path);
+	}
+
 	@Test
 	public void getMetadata()
 	{
@@ -144,6 +209,35 @@ public class CachedAdapterTest
 		verify(mockedCache, times(1)).storeContents(path, list, true);
 	}
 
+	@Test
+	public void iterateContentsStoresEntriesAndCompletesAtEnd()
+	{
+		FileMetadata metadata = new FileMetadata(path);
+		List<FileMetadata> list = new ArrayList<>();
+		list.add(metadata);
+		when(mockedCache.isComplete(path, true)).thenReturn(false);
+		when(mockedAdapter.iterateContents(path, true)).thenReturn(ContentIterators.of(list));
+
+		ContentIterator iterator = cachedAdapter.iterateContents(path, true);
+		assertEquals(metadata, iterator.next());
+		verify(mockedCache, times(1)).updateObject(path, metadata);
+		verify(mockedCache, never()).setComplete(path, true);
+
+		assertEquals(false, iterator.hasNext());
+		verify(mockedCache, times(1)).setComplete(path, true);
+	}
+
+	@Test
+	public void iterateContentsAlreadyCached()
+	{
+		List<FileMetadata> list = new ArrayList<>();
+		list.add(new FileMetadata(path));
+		when(mockedCache.isComplete(path, true)).thenReturn(true);
+		when(mockedCache.listContents(path, true)).thenReturn(list);
+		assertEquals(list, ContentIterators.toList(cachedAdapter.iterateContents(path, true)));
+		verify(mockedAdapter, never()).iterateContents(path, true);
+	}
+
 	@Test
 	public void writeSuccess()
 	{
@@ -160,6 +254,85 @@ public class CachedAdapterTest
 		verify(mockedCache, times(0)).updateObject(path, contents, true);
 	}
 
+	@Test
+	public void writeStreamSuccess()
+	{
+		InputStream stream = new ByteArrayInputStream(contents.getBytes());
+		when(mockedAdapter.writeStream(path, stream, new Config())).thenReturn(true);
+		assertEquals(true, cachedAdapter.writeStream(path, stream));
+		verify(mockedCache, times(1)).storeWritten(path);
+	}
+
+	@Test
+	public void writeStreamFail()
+	{
+		InputStream stream = new ByteArrayInputStream(contents.getBytes());
+		when(mockedAdapter.writeStream(path, stream, new Config())).thenReturn(false);
+		assertEquals(false, cachedAdapter.writeStream(path, stream));
+		verify(mockedCache, never()).updateObject(eq(path), any(), eq(true));
+		verify(mockedCache, never()).storeWritten(path);
+	}
+
+	@Test
+	public void readKeepsCachedMetadata()
+	{
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, new Memory(false));
+		FileMetadata metadata = new FileMetadata(path, 4L, Visibility.PUBLIC, "text/plain", 1000L, "file");
+		when(mockedAdapter.getMetadata(path)).thenReturn(metadata);
+		when(mockedAdapter.read(path)).thenReturn(contents);
+
+		cachedAdapter.getMetadata(path);
+		assertEquals(contents, cachedAdapter.read(path));
+		FileMetadata cached = cachedAdapter.getMetadata(path);
+		assertEquals(Long.valueOf(4), cached.getSize());
+		assertEquals(Long.valueOf(1000), cached.getTimestamp());
+		assertEquals(Visibility.PUBLIC, cached.getVisibility());
+		verify(mockedAdapter, times(1)).getMetadata(path);
+		assertEquals(contents, cachedAdapter.read(path));
+		verify(mockedAdapter, times(1)).read(path);
+	}
+
+	@Test
+	public void readThenGetMetadata()
+	{
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, new Memory(false));
+		FileMetadata metadata = new FileMetadata(path, 4L, Visibility.PUBLIC, "text/plain", 1000L, "file");
+		when(mockedAdapter.read(path)).thenReturn(contents);
+		when(mockedAdapter.getMetadata(path)).thenReturn(metadata);
+
+		assertEquals(contents, cachedAdapter.read(path));
+		FileMetadata fetched = cachedAdapter.getMetadata(path);
+		assertEquals(Long.valueOf(4), fetched.getSize());
+		assertEquals(Long.valueOf(1000), fetched.getTimestamp());
+		assertEquals(Visibility.PUBLIC, fetched.getVisibility());
+		verify(mockedAdapter, times(1)).getMetadata(path);
+	}
+
+	@Test
+	public void writeThenGetMetadata()
+	{
+		CachedAdapter cachedAdapter = new CachedAdapter(mockedAdapter, new Memory(false));
+		FileMetadata metadata = new FileMetadata(path, 4L, Visibility.PUBLIC, "text/plain", 1000L, "file");
+		when(mockedAdapter.write(eq(path), eq(contents), any(Config.class))).thenReturn(true);
+		when(mockedAdapter.getMetadata(path)).thenReturn(metadata);
+
+		assertTrue(cachedAdapter.write(path, contents));
+		assertTrue(cachedAdapter.has(path));
+		assertEquals(contents, cachedAdapter.read(path));
+		assertEquals(Long.valueOf(4), cachedAdapter.getMetadata(path).getSize());
+		verify(mockedAdapter, never()).has(path);
+		verify(mockedAdapter, never()).read(path);
+	}
+
+	@Test
+	public void readStreamBypassesCache()
+	{
+		InputStream stream = new ByteArrayInputStream(contents.getBytes());
+		when(mockedAdapter.readStream(path)).thenReturn(stream);
+		assertEquals(stream, cachedAdapter.readStream(path));
+		verifyZeroInteractions(mockedCommands);
+	}
+
 	@Test
 	public void updateSuccess()
 	{
@@ -195,7 +368,7 @@ public class CachedAdapterTest
 	@Test
 	public void copySuccess()
 	{
-		when(mockedAdapter.copy(path, to)).thenReturn(true);
+		when(mockedAdapter.copy(path, to, new Config())).thenReturn(true);
 		assertEquals(true, cachedAdapter.copy(path, to));
 		verify(mockedCache, times(1)).copy(path, to);
 	}
@@ -203,7 +376,7 @@ public class CachedAdapterTest
 	@Test
 	public void copyFail()
 	{
-		when(mockedAdapter.copy(path, to)).thenReturn(false);
+		when(mockedAdapter.copy(path, to, new Config())).thenReturn(false);
 		assertEquals(false, cachedAdapter.copy(path, to));
 		verify(mockedCache, times(0)).copy(path, to);
 	}
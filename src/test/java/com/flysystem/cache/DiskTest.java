@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.cache;
+
+import com.flysystem.core.Config;
+import com.flysystem.core.FileMetadata;
+import com.flysystem.core.Visibility;
+import com.flysystem.core.cache.storage.AbstractCache;
+import com.flysystem.core.cache.storage.Disk;
+import com.google.common.base.Supplier;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class DiskTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File file;
+	Config config;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		file = new File(folder.getRoot(), "cache/metadata.bin");
+		config = new Config().set(AbstractCache.AUTOSAVE_DELAY, 0);
+	}
+
+	@Test
+	public void startsEmpty()
+	{
+		Disk disk = new Disk(file, true, config);
+		assertFalse(disk.has("example.txt"));
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void reloadsSavedState()
+	{
+		Disk disk = new Disk(file, true, config);
+		disk.storeContents("dir", Arrays.asList(
+				new FileMetadata("dir/a.txt", 4L, Visibility.PUBLIC, "text/plain", 1000L, "file"),
+				new FileMetadata("dir/sub", null, null, null, null, "dir")), false);
+		disk.updateObject("dir/b.txt", "contents", true);
+		assertTrue(file.isFile());
+
+		Disk reloaded = new Disk(file, true, config);
+		assertTrue(reloaded.has("dir/a.txt"));
+		assertEquals(Long.valueOf(4), reloaded.getSize("dir/a.txt"));
+		assertEquals(Long.valueOf(1000), reloaded.getTimestamp("dir/a.txt"));
+		assertEquals(Visibility.PUBLIC, reloaded.getVisibility("dir/a.txt"));
+		assertEquals("text/plain", reloaded.getMimetype("dir/a.txt"));
+		assertEquals("dir", reloaded.getMetadata("dir/sub").getType());
+		assertNull(reloaded.getSize("dir/sub"));
+		assertTrue(reloaded.has("dir/b.txt"));
+		assertNull(reloaded.read("dir/b.txt"));
+		assertNull(reloaded.getMetadata("dir/b.txt"));
+		assertTrue(reloaded.isComplete("dir", false));
+		assertFalse(reloaded.isComplete("dir", true));
+		assertEquals(3, reloaded.listContents("dir", false).size());
+	}
+
+	@Test
+	public void savesOnClose()
+	{
+		Disk disk = new Disk(file, false, config);
+		disk.updateObject("example.txt", new FileMetadata("example.txt", 4L, null, null, null, "file"), true);
+		assertFalse(file.exists());
+		disk.close();
+		assertTrue(new Disk(file, false, config).has("example.txt"));
+	}
+
+	@Test
+	public void leavesOutMisses()
+	{
+		Disk disk = new Disk(file, true, config);
+		disk.updateObject("example.txt", new FileMetadata("example.txt", 4L, null, null, null, "file"), true);
+		disk.storeMiss("example.txt");
+		disk.storeMiss("other.txt");
+		Disk reloaded = new Disk(file, true, config);
+		assertFalse(reloaded.has("example.txt"));
+		assertNull(reloaded.getMetadata("other.txt"));
+	}
+
+	@Test
+	public void leavesLazyMimetypeUnresolved()
+	{
+		final AtomicInteger resolved = new AtomicInteger();
+		FileMetadata metadata = new FileMetadata("example.txt", 4L, null, null, null, "file");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				resolved.incrementAndGet();
+				return "text/plain";
+			}
+		});
+		new Disk(file, true, config).updateObject("example.txt", metadata, true);
+		assertEquals(0, resolved.get());
+		Disk reloaded = new Disk(file, true, config);
+		assertNull(reloaded.getMimetype("example.txt"));
+		assertNull(reloaded.getMetadata("example.txt"));
+		assertEquals(Long.valueOf(4), reloaded.getSize("example.txt"));
+	}
+
+	@Test
+	public void appendsChanges()
+	{
+		Disk disk = new Disk(file, true, config);
+		disk.updateObject("a.txt", new FileMetadata("a.txt", 4L, null, null, null, "file"), true);
+		long snapshot = file.length();
+		disk.storeContents("dir", Arrays.asList(new FileMetadata("dir/b.txt", 4L, null, null, null, "file")), false);
+		disk.storeMiss("a.txt");
+		assertTrue(file.length() > snapshot);
+
+		Disk reloaded = new Disk(file, true, config);
+		assertFalse(reloaded.has("a.txt"));
+		assertTrue(reloaded.has("dir/b.txt"));
+		assertTrue(reloaded.isComplete("dir", false));
+		reloaded.deleteDir("dir");
+		assertFalse(new Disk(file, true, config).isComplete("dir", false));
+	}
+
+	@Test
+	public void compactsLongLog()
+	{
+		Disk disk = new Disk(file, true, new Config().set(AbstractCache.AUTOSAVE_DELAY, 0).set(Disk.COMPACT_AFTER, 10));
+		disk.updateObject("a.txt", new FileMetadata("a.txt", 4L, null, null, 0L, "file"), true);
+		long snapshot = file.length();
+		disk.updateObject("a.txt", new FileMetadata("a.txt", 4L, null, null, 1L, "file"), true);
+		long record = file.length() - snapshot;
+		for (long i = 2; i < 100; i++) {
+			disk.updateObject("a.txt", new FileMetadata("a.txt", 4L, null, null, i, "file"), true);
+		}
+		assertTrue(file.length() <= snapshot + 10 * record);
+		assertEquals(Long.valueOf(99), new Disk(file, true, config).getTimestamp("a.txt"));
+	}
+
+	@Test
+	public void keepsChangesBeforeCutOffAppend() throws Exception
+	{
+		Disk disk = new Disk(file, true, config);
+		disk.updateObject("a.txt", new FileMetadata("a.txt", 4L, null, null, null, "file"), true);
+		disk.updateObject("b.txt", new FileMetadata("b.txt", 4L, null, null, null, "file"), true);
+		disk.updateObject("c.txt", new FileMetadata("c.txt", 4L, null, null, null, "file"), true);
+		byte[] saved = Files.toByteArray(file);
+		Files.write(Arrays.copyOf(saved, saved.length - 3), file);
+
+		Disk reloaded = new Disk(file, true, config);
+		assertTrue(reloaded.has("a.txt"));
+		assertTrue(reloaded.has("b.txt"));
+		assertFalse(reloaded.has("c.txt"));
+		reloaded.updateObject("d.txt", new FileMetadata("d.txt", 4L, null, null, null, "file"), true);
+		reloaded = new Disk(file, true, config);
+		assertTrue(reloaded.has("b.txt"));
+		assertTrue(reloaded.has("d.txt"));
+	}
+
+	@Test
+	public void ignoresDamagedFile() throws Exception
+	{
+		Disk disk = new Disk(file, true, config);
+		disk.updateObject("example.txt", new FileMetadata("example.txt", 4L, null, null, null, "file"), true);
+		byte[] saved = Files.toByteArray(file);
+		Files.write(Arrays.copyOf(saved, saved.length - 6), file);
+		assertFalse(new Disk(file, true, config).has("example.txt"));
+		Files.write("not a cache".getBytes(), file);
+		assertFalse(new Disk(file, true, config).has("example.txt"));
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.cache;
+
+import com.flysystem.core.cache.storage.OffHeapContentCache;
+import com.google.common.base.Strings;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class OffHeapContentCacheTest
+{
+	OffHeapContentCache cache;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		cache = new OffHeapContentCache(64, 16, 32, 48);
+	}
+
+	@Test
+	public void putAndGet()
+	{
+		cache.put("example.txt", "contents");
+		assertEquals("contents", cache.get("example.txt"));
+		assertNull(cache.get("other.txt"));
+	}
+
+	@Test
+	public void contentsSpanningBlocksAndSlabs()
+	{
+		String contents = Strings.repeat("\u00e9abc", 8);
+		cache.put("example.txt", contents);
+		assertEquals(contents, cache.get("example.txt"));
+		assertEquals(64, cache.allocatedBytes());
+	}
+
+	@Test
+	public void emptyContents()
+	{
+		cache.put("example.txt", "");
+		assertEquals("", cache.get("example.txt"));
+	}
+
+	@Test
+	public void replacingReusesBlocks()
+	{
+		cache.put("example.txt", Strings.repeat("a", 48));
+		cache.put("example.txt", "b");
+		cache.put("other.txt", Strings.repeat("c", 48));
+		assertEquals("b", cache.get("example.txt"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed()
+	{
+		cache.put("one.txt", Strings.repeat("1", 32));
+		cache.put("two.txt", Strings.repeat("2", 32));
+		cache.get("one.txt");
+		cache.put("three.txt", Strings.repeat("3", 16));
+		assertNull(cache.get("two.txt"));
+		assertEquals(Strings.repeat("1", 32), cache.get("one.txt"));
+		assertEquals(Strings.repeat("3", 16), cache.get("three.txt"));
+	}
+
+	@Test
+	public void skipsLargeEntries()
+	{
+		cache.put("example.txt", "contents");
+		cache.put("example.txt", Strings.repeat("a", 49));
+		assertNull(cache.get("example.txt"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void invalidateDirectory()
+	{
+		cache.put("foo/a.txt", "a");
+		cache.put("foo/bar/b.txt", "b");
+		cache.put("foobar.txt", "c");
+		cache.invalidateDirectory("foo");
+		assertNull(cache.get("foo/a.txt"));
+		assertNull(cache.get("foo/bar/b.txt"));
+		assertEquals("c", cache.get("foobar.txt"));
+	}
+
+	@Test
+	public void invalidate()
+	{
+		cache.put("example.txt", "contents");
+		cache.invalidate("example.txt");
+		assertNull(cache.get("example.txt"));
+		cache.put("example.txt", "contents");
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void concurrentReadsNeverSeeReusedBlocks() throws Exception
+	{
+		final OffHeapContentCache cache = new OffHeapContentCache(64, 16, 32, 48);
+		final AtomicBoolean torn = new AtomicBoolean();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final char letter = (char) ('a' + t);
+			threads[t] = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					for (int i = 0; i < 20000; i++) {
+						String path = (i % 3) + ".txt";
+						if (i % 2 == 0) {
+							cache.put(path, Strings.repeat(String.valueOf(letter), 40));
+						} else {
+							String contents = cache.get(path);
+							if (contents != null && ! contents.equals(Strings.repeat(contents.substring(0, 1), 40))) torn.set(true);
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse(torn.get());
+	}
+}
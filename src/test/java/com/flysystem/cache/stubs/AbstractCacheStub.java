@@ -22,8 +22,8 @@
 
 package com.flysystem.cache.stubs;
 
+import com.flysystem.core.Config;
 import com.flysystem.core.MetadataWrapper;
-import com.flysystem.core.adapter.local.FileMetadataConverter;
 import com.flysystem.core.cache.storage.AbstractCache;
 import com.google.common.cache.Cache;
 
@@ -32,9 +32,9 @@ import com.google.common.cache.Cache;
  */
 public class AbstractCacheStub extends AbstractCache
 {
-	public AbstractCacheStub(boolean autosave, Cache<String, MetadataWrapper> cache, Cache<String, Object> complete, FileMetadataConverter converter)
+	public AbstractCacheStub(boolean autosave, Cache<String, MetadataWrapper> cache, Cache<String, Object> complete)
 	{
-		super(autosave, cache, complete, converter);
+		super(autosave, cache, complete);
 	}
 
 	public AbstractCacheStub(boolean autosave)
@@ -42,6 +42,11 @@ public class AbstractCacheStub extends AbstractCache
 		super(autosave);
 	}
 
+	public AbstractCacheStub(boolean autosave, Config limits)
+	{
+		super(autosave, limits);
+	}
+
 	@Override
 	public void save()
 	{
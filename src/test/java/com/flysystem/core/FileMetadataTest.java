@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class FileMetadataTest
+{
+	@Test
+	public void mimetypeIsResolvedOnceOnFirstAccess()
+	{
+		final int[] calls = {0};
+		FileMetadata metadata = new FileMetadata("example.txt");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				calls[0]++;
+				return "text/plain";
+			}
+		});
+
+		assertEquals(0, calls[0]);
+		assertEquals("text/plain", metadata.getMimetype());
+		assertEquals("text/plain", metadata.getMimetype());
+		assertEquals(1, calls[0]);
+	}
+
+	@Test
+	public void settingMimetypeDiscardsResolver()
+	{
+		FileMetadata metadata = new FileMetadata("example.txt");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				return "text/plain";
+			}
+		});
+		metadata.setMimetype((String) null);
+		assertNull(metadata.getMimetype());
+	}
+
+	@Test
+	public void concurrentReadersSeeTheResolvedMimetype() throws Exception
+	{
+		final AtomicInteger calls = new AtomicInteger();
+		final FileMetadata metadata = new FileMetadata("example.txt");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				calls.incrementAndGet();
+				Uninterruptibles.sleepUninterruptibly(20, TimeUnit.MILLISECONDS);
+				return "text/plain";
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<String>()
+				{
+					public String call()
+					{
+						return metadata.getMimetype();
+					}
+				}));
+			}
+			for (Future<String> result : results) {
+				assertEquals("text/plain", result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void copyForAnotherPathDropsLazyMimetype()
+	{
+		FileMetadata metadata = new FileMetadata("example.txt");
+		metadata.setMimetype(new Supplier<String>()
+		{
+			public String get()
+			{
+				return "text/plain";
+			}
+		});
+		assertEquals(false, metadata.copy("example.txt").isMimetypeResolved());
+		assertNull(metadata.copy("example.png").getMimetype());
+		assertNull(metadata.copy("other.txt").getMimetype());
+
+		metadata.getMimetype();
+		assertEquals("text/plain", metadata.copy("other.txt").getMimetype());
+		assertNull(metadata.copy("example.png").getMimetype());
+	}
+}
@@ -36,6 +36,8 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,6 +45,8 @@ import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 /**
@@ -134,6 +138,33 @@ public class FilesystemTest
 		assertEquals(filesystem.read(path), contents);
 	}
 
+	@Test
+	public void readStream()
+	{
+		InputStream stream = new ByteArrayInputStream(contents.getBytes());
+		when(mockedAdapter.has(path)).thenReturn(true);
+		when(mockedAdapter.readStream(path)).thenReturn(stream);
+		assertEquals(stream, filesystem.readStream(path));
+	}
+
+	@Test
+	public void putStreamNew()
+	{
+		InputStream stream = new ByteArrayInputStream(contents.getBytes());
+		when(mockedAdapter.has(path)).thenReturn(false);
+		when(mockedAdapter.writeStream(path, stream, config)).thenReturn(true);
+		assertTrue(filesystem.putStream(path, stream, config));
+	}
+
+	@Test
+	public void putStreamUpdate()
+	{
+		InputStream stream = new ByteArrayInputStream(contents.getBytes());
+		when(mockedAdapter.has(path)).thenReturn(true);
+		when(mockedAdapter.updateStream(path, stream, config)).thenReturn(true);
+		assertTrue(filesystem.putStream(path, stream, config));
+	}
+
 	@Test
 	public void rename() throws Exception
 	{
@@ -153,7 +184,7 @@ public class FilesystemTest
 		String newFile = "new.txt";
 
 		when(mockedAdapter.has(Matchers.<String>any())).thenReturn(true, false);
-		when(mockedAdapter.copy(oldFile, newFile)).thenReturn(true);
+		when(mockedAdapter.copy(oldFile, newFile, new Config())).thenReturn(true);
 
 		assertTrue(filesystem.copy(oldFile, newFile));
 	}
@@ -266,4 +297,62 @@ public class FilesystemTest
 		assertEquals(raw, filesystem.listContents("valid", false));
 	}
 
+	@Test
+	public void iterateContents()
+	{
+		ContentIterator iterator = ContentIterators.of(new ArrayList<FileMetadata>());
+		when(mockedAdapter.iterateContents("valid", true)).thenReturn(iterator);
+		assertEquals(iterator, filesystem.iterateContents("/valid/", true));
+	}
+
+	@Test
+	public void optimisticReadSkipsExistenceCheck()
+	{
+		Filesystem optimistic = new FilesystemImpl(mockedAdapter, new Config().set(FilesystemImpl.OPTIMISTIC, true));
+		when(mockedAdapter.read(path)).thenReturn(contents);
+		assertEquals(contents, optimistic.read(path));
+		verify(mockedAdapter, never()).has(path);
+	}
+
+	@Test
+	public void optimisticGivenAsString()
+	{
+		Filesystem optimistic = new FilesystemImpl(mockedAdapter, new Config().set(FilesystemImpl.OPTIMISTIC, " TRUE "));
+		when(mockedAdapter.read(path)).thenReturn(contents);
+		assertEquals(contents, optimistic.read(path));
+		verify(mockedAdapter, never()).has(path);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void optimisticRejectsOtherStrings()
+	{
+		new FilesystemImpl(mockedAdapter, new Config().set(FilesystemImpl.OPTIMISTIC, "yes")).read(path);
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void optimisticReadPropagatesAdapterException()
+	{
+		Filesystem optimistic = new FilesystemImpl(mockedAdapter, new Config().set(FilesystemImpl.OPTIMISTIC, true));
+		when(mockedAdapter.read(path)).thenThrow(new FileNotFoundException(path));
+		optimistic.read(path);
+	}
+
+	@Test
+	public void optimisticPutFallsBackToWrite()
+	{
+		Filesystem optimistic = new FilesystemImpl(mockedAdapter, new Config().set(FilesystemImpl.OPTIMISTIC, true));
+		when(mockedAdapter.update(path, contents, config)).thenThrow(new FileNotFoundException(path));
+		when(mockedAdapter.write(path, contents, config)).thenReturn(true);
+		assertTrue(optimistic.put(path, contents, config));
+		verify(mockedAdapter, never()).has(path);
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void optimisticDeleteChecksExistenceOnFailure()
+	{
+		Filesystem optimistic = new FilesystemImpl(mockedAdapter, new Config().set(FilesystemImpl.OPTIMISTIC, true));
+		when(mockedAdapter.delete(path)).thenReturn(false);
+		when(mockedAdapter.has(path)).thenReturn(false);
+		optimistic.delete(path);
+	}
 }
@@ -22,6 +22,9 @@
 
 package com.flysystem.core;
 
+import com.flysystem.core.adapter.local.CopyMode;
+import com.flysystem.core.adapter.local.FileBuffer;
+import com.flysystem.core.adapter.local.FileCommands;
 import com.flysystem.core.adapter.local.Local;
 import com.flysystem.core.exception.DirectoryNotFoundException;
 import com.flysystem.core.exception.FileExistsException;
@@ -31,7 +34,17 @@ import com.flysystem.core.util.FlysystemTestUtil;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
@@ -107,6 +120,98 @@ public class LocalAdapterTest
 		assertFalse(adapter.has("temp.txt"));
 	}
 
+	@Test
+	public void canWriteAndReadStream() throws IOException
+	{
+		byte[] bytes = new byte[] {0, 1, 2, (byte) 0xff};
+		adapter.writeStream("temp.bin", new ByteArrayInputStream(bytes));
+		try (InputStream stream = adapter.readStream("temp.bin")) {
+			assertArrayEquals(bytes, IOUtils.toByteArray(stream));
+		}
+		adapter.delete("temp.bin");
+	}
+
+	@Test
+	public void updateStreamContents()
+	{
+		adapter.write("temp.txt", "foo");
+		adapter.updateStream("temp.txt", new ByteArrayInputStream("bar".getBytes()));
+		assertEquals("bar", adapter.read("temp.txt"));
+		adapter.delete("temp.txt");
+	}
+
+	@Test
+	public void canWriteAndReadChannel() throws IOException
+	{
+		adapter.writeStream("temp.txt", Channels.newChannel(new ByteArrayInputStream("channel".getBytes())));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		long transferred = adapter.readStream("temp.txt", Channels.newChannel(output));
+		assertEquals(7, transferred);
+		assertEquals("channel", output.toString());
+		adapter.delete("temp.txt");
+	}
+
+	@Test
+	public void writeStreamFromFileChannel() throws IOException
+	{
+		try (ReadableByteChannel channel = adapter.readChannel(example)) {
+			adapter.writeStream("temp.txt", channel);
+		}
+		assertEquals("test", adapter.read("temp.txt"));
+		adapter.delete("temp.txt");
+	}
+
+	@Test
+	public void mapFile()
+	{
+		try (FileBuffer buffer = adapter.map(example)) {
+			assertTrue(buffer.isMapped());
+			assertEquals(4, buffer.size());
+			ByteBuffer region = buffer.region(0);
+			byte[] bytes = new byte[region.remaining()];
+			region.get(bytes);
+			assertEquals("test", new String(bytes));
+		}
+	}
+
+	@Test
+	public void mappedFileIsSplitIntoRegions() throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(FlysystemTestUtil.getRoot(), example));
+		     FileBuffer buffer = FileBuffer.map(channel, 3)) {
+			assertEquals(2, buffer.regionCount());
+			assertEquals('t', buffer.get(0));
+			assertEquals('t', buffer.get(3));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void closedBufferCanNotBeRead()
+	{
+		FileBuffer buffer = adapter.map(example);
+		buffer.close();
+		buffer.get(0);
+	}
+
+	@Test
+	public void readBufferUsesThreshold()
+	{
+		try (FileBuffer buffer = adapter.readBuffer(example)) {
+			assertFalse(buffer.isMapped());
+			assertEquals('e', buffer.get(1));
+		}
+		try (FileBuffer buffer = adapter.readBuffer(example, new Config().set(Local.MMAP_THRESHOLD, 4L))) {
+			assertTrue(buffer.isMapped());
+			assertEquals('e', buffer.get(1));
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void readStreamOfNonExistingFile()
+	{
+		adapter.readStream("nonexisting.txt");
+	}
+
 	@Test
 	public void copy()
 	{
@@ -116,6 +221,53 @@ public class LocalAdapterTest
 		adapter.delete("newexample.txt");
 	}
 
+	@Test
+	public void copyCommandsReturnBytesCopied()
+	{
+		java.io.File source = new java.io.File(FlysystemTestUtil.getRoot() + example);
+		java.io.File copy = new java.io.File(FlysystemTestUtil.getRoot() + "copiedexample.txt");
+		java.io.File link = new java.io.File(FlysystemTestUtil.getRoot() + "linkedexample.txt");
+		try {
+			assertEquals(4L, new FileCommands.CopyFileCommand().execute(source, copy));
+			assertEquals(0L, new FileCommands.LinkFileCommand().execute(source, link));
+		} finally {
+			copy.delete();
+			link.delete();
+		}
+	}
+
+	@Test
+	public void copyAsHardlink()
+	{
+		adapter.copy(example, "linkedexample.txt", new Config().set(Local.COPY_MODE, CopyMode.HARDLINK));
+		assertEquals("test", adapter.read("linkedexample.txt"));
+		adapter.delete("linkedexample.txt");
+	}
+
+	@Test
+	public void hardlinkedCopyIsIndependent()
+	{
+		adapter.copy(example, "linkedexample.txt", new Config().set(Local.COPY_MODE, "hardlink"));
+		adapter.update("linkedexample.txt", "changed");
+		assertEquals("changed", adapter.read("linkedexample.txt"));
+		assertEquals("test", adapter.read(example));
+		adapter.delete("linkedexample.txt");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void copyWithUnknownMode()
+	{
+		adapter.copy(example, "newexample.txt", new Config().set(Local.COPY_MODE, "symlink"));
+	}
+
+	@Test
+	public void copyAsClone()
+	{
+		adapter.copy(example, "clonedexample.txt", new Config().set(Local.COPY_MODE, CopyMode.CLONE));
+		assertEquals("test", adapter.read("clonedexample.txt"));
+		adapter.delete("clonedexample.txt");
+	}
+
 	@Test
 	public void copyShouldCreateDirectoryIfNotExists()
 	{
@@ -137,6 +289,32 @@ public class LocalAdapterTest
 		assertThat(files, hasItem(new FileMetadata(example)));
 	}
 
+	@Test
+	public void iterateContentsRecursively()
+	{
+		adapter.write("nested/deeper/temp.txt", "temp");
+		List<FileMetadata> files = ContentIterators.toList(adapter.iterateContents("", true));
+		adapter.deleteDir("nested");
+		assertTrue(files.contains(new FileMetadata(example)));
+		assertTrue(files.contains(new FileMetadata("nested" + java.io.File.separator + "deeper" + java.io.File.separator + "temp.txt")));
+		assertFalse(files.contains(new FileMetadata("nested")));
+	}
+
+	@Test
+	public void iterateContentsCanStopEarly()
+	{
+		try (ContentIterator iterator = adapter.iterateContents("", false)) {
+			assertTrue(iterator.hasNext());
+			assertNotNull(iterator.next());
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void iterateContentsOfNonExistingDirectory()
+	{
+		adapter.iterateContents("nonexisting", false);
+	}
+
 	@Test
 	public void getSize()
 	{
@@ -159,9 +337,30 @@ public class LocalAdapterTest
 	public void metadataShouldBeFilled()
 	{
 		FileMetadata metadata = adapter.getMetadata(example);
-		assertEquals(FlysystemTestUtil.getRoot() + example, metadata.getPath());
+		assertEquals(example, metadata.getPath());
 		assertEquals("file", metadata.getType());
 		assertEquals(4l, (long) metadata.getSize()); //file contains the string "test"
+		assertNotNull(metadata.getVisibility());
+		assertEquals("text/plain", metadata.getMimetype());
+		assertEquals(new java.io.File(FlysystemTestUtil.getRoot() + example).lastModified(), (long) metadata.getTimestamp());
+	}
+
+	@Test
+	public void getTimestamp()
+	{
+		assertEquals(new java.io.File(FlysystemTestUtil.getRoot() + example).lastModified(), (long) adapter.getTimestamp(example));
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void getSizeOfNonExistingFile()
+	{
+		adapter.getSize("nonexisting.txt");
+	}
+
+	@Test
+	public void getMimetype()
+	{
+		assertEquals("text/plain", adapter.getMimetype(example));
 	}
 
 	@Test(expected = FileNotFoundException.class)
@@ -195,6 +394,28 @@ public class LocalAdapterTest
 		}
 	}
 
+	@Test(expected = FileExistsException.class)
+	public void writeToExistingFile()
+	{
+		adapter.write("temp.txt", "temp");
+		try {
+			adapter.write("temp.txt", "other");
+		} finally {
+			assertEquals("temp", adapter.read("temp.txt"));
+			adapter.delete("temp.txt");
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void updateNonExistingFile()
+	{
+		try {
+			adapter.update("temp.txt", "temp");
+		} finally {
+			assertFalse(adapter.has("temp.txt"));
+		}
+	}
+
 	@Test
 	public void renameToNonExistingDirectory()
 	{
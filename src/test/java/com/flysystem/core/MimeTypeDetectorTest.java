@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.core;
+
+import com.flysystem.core.util.FlysystemTestUtil;
+import com.flysystem.core.util.mime.CachingMimeTypeDetector;
+import com.flysystem.core.util.mime.ChainedMimeTypeDetector;
+import com.flysystem.core.util.mime.ExtensionMimeTypeDetector;
+import com.flysystem.core.util.mime.MagicMimeTypeDetector;
+import com.flysystem.core.util.mime.MimeTypeDetector;
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+@RunWith(DataProviderRunner.class)
+public class MimeTypeDetectorTest
+{
+	@DataProvider
+	public static Object[][] dataProviderExtensions() {
+		return new Object[][] {
+				{"example.txt", "text/plain"},
+				{"dir/IMAGE.PNG", "image/png"},
+				{"dir.d/archive.tar", "application/x-tar"},
+				{"style.css", "text/css"},
+				{"model.stl", "model/stl"},
+				{"no_extension", null},
+				{"dir.json/no_extension", null},
+				{"trailing.", null},
+				{"unknown.zzz", null},
+		};
+	}
+
+	@Test
+	@UseDataProvider("dataProviderExtensions")
+	public void detectsByExtension(String path, String expected)
+	{
+		assertEquals(expected, new ExtensionMimeTypeDetector().detect(path, 0, 0));
+	}
+
+	@Test
+	public void cachesPerPathSizeAndTimestamp()
+	{
+		MimeTypeDetector inner = mock(MimeTypeDetector.class);
+		when(inner.detect("file", 4, 1)).thenReturn("text/plain");
+		MimeTypeDetector detector = new CachingMimeTypeDetector(inner);
+
+		assertEquals("text/plain", detector.detect("file", 4, 1));
+		assertEquals("text/plain", detector.detect("file", 4, 1));
+		verify(inner, times(1)).detect("file", 4, 1);
+
+		detector.detect("file", 4, 2);
+		verify(inner, times(1)).detect("file", 4, 2);
+	}
+
+	@Test
+	public void chainReturnsFirstDetection()
+	{
+		MimeTypeDetector fallback = mock(MimeTypeDetector.class);
+		MimeTypeDetector detector = new ChainedMimeTypeDetector(new ExtensionMimeTypeDetector(), fallback);
+
+		assertEquals("text/plain", detector.detect("example.txt", 4, 0));
+		verify(fallback, never()).detect("example.txt", 4, 0);
+
+		assertNull(detector.detect("unknown", 4, 0));
+		verify(fallback, times(1)).detect("unknown", 4, 0);
+	}
+
+	@Test
+	public void sniffsContents()
+	{
+		String path = FlysystemTestUtil.getRoot() + "example.txt";
+		assertEquals("text/plain", new MagicMimeTypeDetector().detect(path, 4, 0));
+	}
+}
@@ -33,6 +33,7 @@ import org.junit.runner.RunWith;
 import java.io.File;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
 
 /**
  * @author Zeger Hoogeboom
@@ -55,7 +56,13 @@ public class UtilTest
 				{"/dirname//subdir///subsubdir", String.format("dirname%ssubdir%ssubsubdir", File.separator, File.separator)},
 				{"\\dirname\\\\subdir\\\\\\subsubdir", String.format("dirname%ssubdir%ssubsubdir", File.separator, File.separator)},
 				{"\\\\some\\shared\\\\drive", String.format("some%sshared%sdrive", File.separator, File.separator)},
-				{"C:\\dirname\\\\subdir\\\\\\subsubdir", String.format("C:%sdirname%ssubdir%ssubsubdir", File.separator, File.separator, File.separator)}
+				{"C:\\dirname\\\\subdir\\\\\\subsubdir", String.format("C:%sdirname%ssubdir%ssubsubdir", File.separator, File.separator, File.separator)},
+				{"dirname/subdir/../other", String.format("dirname%sother", File.separator)},
+				{"dirname/.../..", "dirname"},
+				{"..", null},
+				{"dirname/../../other", null},
+				{"", ""},
+				{"/", ""}
 //				{"C:\\\\dirname\\subdir\\\\\\\\subsubdir", "C:\\dirname\\subdir\\subsubdir"} //fixme!
 		};
 	}
@@ -68,6 +75,13 @@ public class UtilTest
 		assertEquals(expected, result);
 	}
 
+	@Test
+	public void testNormalizePathReturnsNormalPathUnchanged()
+	{
+		String path = String.format("dirname%ssubdir%sfile.txt", File.separator, File.separator);
+		assertSame(path, PathUtil.normalizePath(path));
+	}
+
 	@Test
 	public void testMimetypeGuess()
 	{
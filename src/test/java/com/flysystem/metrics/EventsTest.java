@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.metrics;
+
+import com.flysystem.core.Filesystem;
+import com.flysystem.core.FilesystemImpl;
+import com.flysystem.core.adapter.local.Local;
+import com.flysystem.core.metrics.EventRecorder;
+import com.flysystem.core.metrics.Events;
+import jdk.jfr.Recording;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class EventsTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	EventRecorder original;
+	List<String> events;
+	Filesystem filesystem;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		original = Events.getRecorder();
+		events = Collections.synchronizedList(new ArrayList<String>());
+		filesystem = new FilesystemImpl(new Local(folder.getRoot().getPath()), null);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		Events.setRecorder(original);
+	}
+
+	@Test
+	public void recordsOperations()
+	{
+		Events.setRecorder(new EventRecorder()
+		{
+			public Event begin(final String layer, final String operation, final String path)
+			{
+				return new Event()
+				{
+					public void end(long bytes, long entries)
+					{
+						events.add(layer + " " + operation + " " + path + " " + bytes + " " + entries);
+					}
+				};
+			}
+		});
+		filesystem.write("dir/example.txt", "contents");
+		filesystem.read("dir/example.txt");
+		filesystem.listContents("dir", false);
+		filesystem.copy("dir/example.txt", "dir/copy.txt");
+		filesystem.rename("dir/copy.txt", "dir/moved.txt");
+		filesystem.delete("dir/moved.txt");
+
+		assertTrue(events.contains("Local write dir/example.txt 8 0"));
+		assertTrue(events.contains("Filesystem write dir/example.txt 8 0"));
+		assertTrue(events.contains("Local read dir/example.txt 8 0"));
+		assertTrue(events.contains("Filesystem read dir/example.txt 8 0"));
+		assertTrue(events.contains("Filesystem listContents dir 0 1"));
+		assertTrue(events.contains("Local copy dir/example.txt 8 1"));
+		assertTrue(events.contains("Filesystem rename dir/copy.txt 0 1"));
+		assertTrue(events.contains("Filesystem delete dir/moved.txt 0 1"));
+	}
+
+	@Test
+	public void failedOperationsAreNotRecorded()
+	{
+		Events.setRecorder(new EventRecorder()
+		{
+			public Event begin(String layer, final String operation, String path)
+			{
+				return new Event()
+				{
+					public void end(long bytes, long entries)
+					{
+						events.add(operation);
+					}
+				};
+			}
+		});
+		try {
+			filesystem.read("missing.txt");
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(events.isEmpty());
+		}
+	}
+
+	@Test
+	public void flightRecorderOnlyRecordsWhileEnabled()
+	{
+		assertNull(Events.begin("Filesystem", "read", "example.txt"));
+		try (Recording recording = new Recording()) {
+			recording.enable("com.flysystem.Operation");
+			recording.start();
+			EventRecorder.Event event = Events.begin("Filesystem", "read", "example.txt");
+			assertNotNull(event);
+			event.end(8, 0);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.metrics;
+
+import com.flysystem.core.metrics.Histogram;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class HistogramTest
+{
+	@Test
+	public void empty()
+	{
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(99), 0);
+		assertEquals(0, histogram.getMean(), 0);
+	}
+
+	@Test
+	public void smallValuesAreExact()
+	{
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 10; i++) {
+			histogram.record(i);
+		}
+		assertEquals(10, histogram.getCount());
+		assertEquals(5, histogram.getValueAtPercentile(50));
+		assertEquals(10, histogram.getValueAtPercentile(100));
+		assertEquals(5.5, histogram.getMean(), 0.001);
+	}
+
+	@Test
+	public void percentilesWithinPrecision()
+	{
+		Histogram histogram = new Histogram();
+		for (long i = 1; i <= 100000; i++) {
+			histogram.record(i * 1000);
+		}
+		assertWithin(50000000, histogram.getValueAtPercentile(50));
+		assertWithin(99000000, histogram.getValueAtPercentile(99));
+		assertEquals(100000000, histogram.getMax());
+		assertEquals(100000000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void largeValues()
+	{
+		Histogram histogram = new Histogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(-1);
+		assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(actual + " is not close to " + expected, actual >= expected && actual <= expected + expected / 16);
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.metrics;
+
+import com.flysystem.core.Adapter;
+import com.flysystem.core.Config;
+import com.flysystem.core.adapter.local.Local;
+import com.flysystem.core.exception.FileNotFoundException;
+import com.flysystem.core.metrics.AdapterMetrics;
+import com.flysystem.core.metrics.InstrumentedAdapter;
+import com.flysystem.core.metrics.MetricsSink;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class InstrumentedAdapterTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Adapter mockedAdapter;
+	AdapterMetrics metrics;
+	InstrumentedAdapter adapter;
+	String path = "example.txt";
+
+	@Before
+	public void setUp() throws Exception
+	{
+		mockedAdapter = mock(Adapter.class);
+		metrics = new AdapterMetrics();
+		adapter = new InstrumentedAdapter(mockedAdapter, metrics);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		metrics.unregister();
+	}
+
+	@Test
+	public void recordsCountsAndBytes()
+	{
+		when(mockedAdapter.read(path)).thenReturn("h\u00e9llo");
+		when(mockedAdapter.write(eq(path), eq("contents"), Matchers.<Config>any())).thenReturn(true);
+		assertEquals("h\u00e9llo", adapter.read(path));
+		adapter.read(path);
+		assertTrue(adapter.write(path, "contents"));
+
+		assertEquals(2, metrics.get("read").getCount());
+		assertEquals(12, metrics.get("read").getBytesOut());
+		assertEquals(1, metrics.get("write").getCount());
+		assertEquals(8, metrics.get("write").getBytesIn());
+		assertEquals(0, metrics.get("write").getErrors());
+		assertNull(metrics.get("has"));
+	}
+
+	@Test
+	public void recordsErrors()
+	{
+		when(mockedAdapter.read(path)).thenThrow(new FileNotFoundException(path));
+		try {
+			adapter.read(path);
+			fail();
+		} catch (FileNotFoundException e) {
+			// expected
+		}
+		assertEquals(1, metrics.get("read").getCount());
+		assertEquals(1, metrics.get("read").getErrors());
+	}
+
+	@Test
+	public void countsStreamBytes()
+	{
+		when(mockedAdapter.writeStream(eq(path), Matchers.<InputStream>any(), Matchers.<Config>any())).thenAnswer(new Answer<Boolean>()
+		{
+			public Boolean answer(InvocationOnMock invocation) throws Throwable
+			{
+				ByteStreams.toByteArray((InputStream) invocation.getArguments()[1]);
+				return true;
+			}
+		});
+		adapter.writeStream(path, new ByteArrayInputStream(new byte[1000]));
+		assertEquals(1000, metrics.get("writeStream").getBytesIn());
+	}
+
+	@Test
+	public void countsFileStreamsWithoutWrapping() throws Exception
+	{
+		File source = folder.newFile("source.bin");
+		Files.write(new byte[5000], source);
+		InstrumentedAdapter local = new InstrumentedAdapter(new Local(folder.newFolder("root").getPath()), metrics);
+		try (FileInputStream stream = new FileInputStream(source)) {
+			assertTrue(local.writeStream(path, stream));
+		}
+		assertEquals(5000, metrics.get("writeStream").getBytesIn());
+
+		InputStream read = local.readStream(path);
+		assertNull(metrics.get("readStream"));
+		ByteStreams.toByteArray(read);
+		read.close();
+		assertEquals(5000, metrics.get("readStream").getBytesOut());
+	}
+
+	@Test
+	public void pluggableSink()
+	{
+		MetricsSink sink = mock(MetricsSink.class);
+		when(mockedAdapter.has(path)).thenReturn(true);
+		assertTrue(new InstrumentedAdapter(mockedAdapter, sink).has(path));
+		verify(sink).record(eq("has"), anyLong(), eq(0L), eq(0L), eq(false));
+	}
+
+	@Test
+	public void registersWithJmx() throws Exception
+	{
+		when(mockedAdapter.has(path)).thenReturn(true);
+		adapter.has(path);
+		ObjectName name = metrics.register("test");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertTrue(server.isRegistered(name));
+		assertNotNull(server.getAttribute(name, "P99Latencies"));
+		metrics.unregister();
+		assertFalse(server.isRegistered(name));
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2013-2015 Frank de Jonge
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.flysystem.metrics;
+
+import com.flysystem.core.Adapter;
+import com.flysystem.core.Config;
+import com.flysystem.core.Filesystem;
+import com.flysystem.core.FilesystemImpl;
+import com.flysystem.core.exception.FileNotFoundException;
+import com.flysystem.core.metrics.OperationTracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Zeger Hoogeboom
+ */
+public class OperationTracerTest
+{
+	Logger logger = Logger.getLogger(OperationTracer.class.getName());
+	List<LogRecord> records;
+	Handler handler;
+	Adapter adapter;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		records = Collections.synchronizedList(new ArrayList<LogRecord>());
+		handler = new Handler()
+		{
+			public void publish(LogRecord record)
+			{
+				records.add(record);
+			}
+
+			public void flush()
+			{
+			}
+
+			public void close()
+			{
+			}
+		};
+		logger.addHandler(handler);
+		logger.setUseParentHandlers(false);
+		adapter = mock(Adapter.class);
+		when(adapter.has("example.txt")).thenReturn(false);
+		when(adapter.write(Matchers.eq("example.txt"), Matchers.eq("contents"), Matchers.any(Config.class))).thenAnswer(new Answer<Boolean>()
+		{
+			public Boolean answer(InvocationOnMock invocation) throws Throwable
+			{
+				Thread.sleep(20);
+				return true;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		logger.removeHandler(handler);
+		logger.setUseParentHandlers(true);
+	}
+
+	private Filesystem filesystem(long threshold, int sampleRate)
+	{
+		Config config = new Config()
+				.set(FilesystemImpl.SLOW_OPERATION_THRESHOLD, threshold)
+				.set(FilesystemImpl.TRACE_SAMPLE_RATE, sampleRate);
+		return new FilesystemImpl(adapter, config);
+	}
+
+	@Test
+	public void logsSlowOperations()
+	{
+		assertTrue(filesystem(10, 0).put("dir/../example.txt", "contents"));
+
+		assertEquals(1, records.size());
+		LogRecord record = records.get(0);
+		assertEquals(Level.WARNING, record.getLevel());
+		String message = record.getMessage();
+		assertTrue(message, message.startsWith("Slow put example.txt on " + adapter.getClass().getSimpleName() + ": "));
+		assertTrue(message, message.endsWith(" ms, 8 bytes"));
+	}
+
+	@Test
+	public void parsesSettingsFromStrings()
+	{
+		Config config = new Config().set(FilesystemImpl.SLOW_OPERATION_THRESHOLD, " 10 ");
+		assertTrue(new FilesystemImpl(adapter, config).put("example.txt", "contents"));
+		assertEquals(1, records.size());
+	}
+
+	@Test
+	public void rejectsSettingsThatAreNoNumbers()
+	{
+		try {
+			new FilesystemImpl(adapter, new Config().set(FilesystemImpl.TRACE_SAMPLE_RATE, "often"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(FilesystemImpl.TRACE_SAMPLE_RATE));
+		}
+	}
+
+	@Test
+	public void skipsFastOperations()
+	{
+		assertTrue(filesystem(10000, 0).put("example.txt", "contents"));
+		assertFalse(filesystem(10000, 0).has("example.txt"));
+
+		assertTrue(records.isEmpty());
+	}
+
+	@Test
+	public void samplesTimelinesWithPreChecks()
+	{
+		assertTrue(filesystem(0, 1).put("example.txt", "contents"));
+
+		assertEquals(1, records.size());
+		LogRecord record = records.get(0);
+		assertEquals(Level.INFO, record.getLevel());
+		String[] lines = record.getMessage().split("\n");
+		assertEquals(3, lines.length);
+		assertTrue(lines[0], lines[0].startsWith("Sampled put example.txt on "));
+		assertTrue(lines[1], lines[1].matches("  \\+\\d+\\.\\d{3} ms has \\d+\\.\\d{3} ms"));
+		assertTrue(lines[2], lines[2].matches("  \\+\\d+\\.\\d{3} ms write \\d+\\.\\d{3} ms, 8 bytes"));
+	}
+
+	@Test
+	public void failedOperationsDoNotLeakIntoTheNext()
+	{
+		Filesystem filesystem = filesystem(0, 1);
+		when(adapter.has("missing.txt")).thenReturn(false);
+		try {
+			filesystem.read("missing.txt");
+			fail();
+		} catch (FileNotFoundException e) {
+			// expected
+		}
+		assertTrue(records.isEmpty());
+
+		assertFalse(filesystem.has("example.txt"));
+		assertEquals(1, records.size());
+		assertEquals(2, records.get(0).getMessage().split("\n").length);
+	}
+}